@@ -0,0 +1,52 @@
+package logan.tillman.ecom.benchmark;
+
+import logan.tillman.ecom.entity.Category;
+import logan.tillman.ecom.entity.Product;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+// Builds a detached, fully linked product/category graph like the one the EAGER mapping used to load
+public final class CatalogGraph {
+
+    private CatalogGraph() {
+    }
+
+    public static List<Product> build(int productCount, int categoryCount, int categoriesPerProduct) {
+        var categories = new ArrayList<Category>(categoryCount);
+
+        for (var i = 0; i < categoryCount; i++) {
+            categories.add(Category.builder()
+                    .categoryId(i + 1)
+                    .name("Category " + i)
+                    .products(new ArrayList<>())
+                    .build());
+        }
+
+        var releaseDate = OffsetDateTime.now();
+        var products = new ArrayList<Product>(productCount);
+
+        for (var i = 0; i < productCount; i++) {
+            var productCategories = new LinkedHashSet<Category>();
+            var product = Product.builder()
+                    .productId(i + 1)
+                    .title("Product " + i)
+                    .description("Description of product " + i)
+                    .releaseDate(releaseDate)
+                    .categories(productCategories)
+                    .build();
+
+            for (var j = 0; j < categoriesPerProduct; j++) {
+                var category = categories.get((i + j) % categoryCount);
+                productCategories.add(category);
+                category.getProducts().add(product);
+            }
+
+            products.add(product);
+        }
+
+        return products;
+    }
+}
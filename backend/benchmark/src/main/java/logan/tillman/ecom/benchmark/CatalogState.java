@@ -0,0 +1,124 @@
+package logan.tillman.ecom.benchmark;
+
+import logan.tillman.ecom.EcomApplication;
+import logan.tillman.ecom.dao.CategoryRepository;
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.entity.Category;
+import logan.tillman.ecom.entity.Product;
+import logan.tillman.ecom.service.CategoryService;
+import logan.tillman.ecom.service.ProductService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Boots the application without a web server against an in-memory H2 catalog of the configured size
+@State(Scope.Benchmark)
+public class CatalogState {
+
+    private static final int SEED_CHUNK_SIZE = 1000;
+
+    // Passed as command line arguments so they take precedence over application.properties
+    private static final String[] APPLICATION_ARGS = {
+            "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.hibernate.ddl-auto=create-drop",
+            "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=WARN"
+    };
+
+    @Param({"1000", "10000"})
+    public int productCount;
+
+    @Param({"50"})
+    public int categoryCount;
+
+    @Param({"3"})
+    public int categoriesPerProduct;
+
+    public ProductService productService;
+    public CategoryService categoryService;
+
+    private ConfigurableApplicationContext context;
+    private int[] productIds;
+    private int[] categoryIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(EcomApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(APPLICATION_ARGS);
+
+        productService = context.getBean(ProductService.class);
+        categoryService = context.getBean(CategoryService.class);
+
+        seed(context.getBean(CategoryRepository.class), context.getBean(ProductRepository.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public int randomProductId() {
+        return productIds[ThreadLocalRandom.current().nextInt(productIds.length)];
+    }
+
+    public int randomCategoryId() {
+        return categoryIds[ThreadLocalRandom.current().nextInt(categoryIds.length)];
+    }
+
+    private void seed(CategoryRepository categoryRepository, ProductRepository productRepository) {
+        var categories = new ArrayList<Category>(categoryCount);
+
+        for (var i = 0; i < categoryCount; i++) {
+            categories.add(Category.builder().name("Category " + i).build());
+        }
+
+        categories = new ArrayList<>(categoryRepository.saveAll(categories));
+        categoryIds = categories.stream().mapToInt(Category::getCategoryId).toArray();
+
+        productIds = new int[productCount];
+        var releaseDate = OffsetDateTime.now();
+        var chunk = new ArrayList<Product>(SEED_CHUNK_SIZE);
+
+        for (var i = 0; i < productCount; i++) {
+            var productCategories = new LinkedHashSet<Category>();
+
+            for (var j = 0; j < categoriesPerProduct; j++) {
+                productCategories.add(categories.get((i + j) % categoryCount));
+            }
+
+            chunk.add(Product.builder()
+                    .title("Product " + i)
+                    .description("Description of product " + i)
+                    .releaseDate(releaseDate)
+                    .categories(productCategories)
+                    .build());
+
+            if (chunk.size() == SEED_CHUNK_SIZE || i == productCount - 1) {
+                List<Product> saved = productRepository.saveAll(chunk);
+
+                for (var k = 0; k < saved.size(); k++) {
+                    productIds[i - saved.size() + 1 + k] = saved.get(k).getProductId();
+                }
+
+                chunk.clear();
+            }
+        }
+    }
+}
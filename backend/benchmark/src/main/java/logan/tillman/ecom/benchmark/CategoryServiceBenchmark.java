@@ -0,0 +1,46 @@
+package logan.tillman.ecom.benchmark;
+
+import logan.tillman.ecom.cache.CategoryResponseSnapshot;
+import logan.tillman.ecom.dto.CategoryDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Throughput benchmarks report ops/s, the *Latency variants report percentiles (p0.99) in us/op
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CategoryServiceBenchmark {
+
+    @Benchmark
+    public CategoryResponseSnapshot.Snapshot getAllCategories(CatalogState catalog) {
+        return catalog.categoryService.getAllCategoriesSnapshot();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public CategoryResponseSnapshot.Snapshot getAllCategoriesLatency(CatalogState catalog) {
+        return getAllCategories(catalog);
+    }
+
+    @Benchmark
+    public CategoryDTO getCategory(CatalogState catalog) {
+        return catalog.categoryService.getCategory(catalog.randomCategoryId());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public CategoryDTO getCategoryLatency(CatalogState catalog) {
+        return getCategory(catalog);
+    }
+}
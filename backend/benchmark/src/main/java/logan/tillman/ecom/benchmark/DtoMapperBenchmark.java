@@ -0,0 +1,67 @@
+package logan.tillman.ecom.benchmark;
+
+import logan.tillman.ecom.entity.Product;
+import logan.tillman.ecom.mapper.DtoMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Run with -prof gc to compare the allocation rate (gc.alloc.rate.norm) of both mappers
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMapperBenchmark {
+
+    @Param({"10000"})
+    int productCount;
+
+    @Param({"50"})
+    int categoryCount;
+
+    @Param({"3"})
+    int categoriesPerProduct;
+
+    private final DtoMapper dtoMapper = new DtoMapper();
+    private final LegacyDtoMapper legacyDtoMapper = new LegacyDtoMapper();
+
+    private List<Product> products;
+    private List<Product> legacyProducts;
+
+    // Built once per trial so setup never lands inside a measurement. The legacy mapper gets its own graph:
+    // it nulls out the category to product links on its first pass and only repeats that on every later one
+    @Setup(Level.Trial)
+    public void buildGraph() {
+        products = CatalogGraph.build(productCount, categoryCount, categoriesPerProduct);
+        legacyProducts = CatalogGraph.build(productCount, categoryCount, categoriesPerProduct);
+    }
+
+    @Benchmark
+    public void mapper(Blackhole blackhole) {
+        for (var product : products) {
+            blackhole.consume(dtoMapper.mapToProductDTO(product));
+        }
+    }
+
+    @Benchmark
+    public void legacyMapper(Blackhole blackhole) {
+        for (var product : legacyProducts) {
+            blackhole.consume(legacyDtoMapper.mapToProductDTO(product));
+        }
+    }
+}
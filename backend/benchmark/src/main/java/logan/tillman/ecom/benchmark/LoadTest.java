@@ -0,0 +1,123 @@
+package logan.tillman.ecom.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Closed-loop HTTP load against a running backend, used to compare the platform and virtual thread modes:
+//
+//   java -cp benchmark/target/benchmarks.jar logan.tillman.ecom.benchmark.LoadTest \
+//       http://localhost:8080 /products/1,/products?size=20,/categories 1000 60
+//
+// Each of the concurrent clients requests the paths in turn for the given number of seconds
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: LoadTest <baseUrl> <path,path,...> <concurrency> <seconds>");
+            System.exit(1);
+        }
+
+        var baseUrl = args[0];
+        var paths = args[1].split(",");
+        var concurrency = Integer.parseInt(args[2]);
+        var duration = Duration.ofSeconds(Long.parseLong(args[3]));
+
+        var client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        var requests = Arrays.stream(paths)
+                .map(path -> HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .timeout(Duration.ofSeconds(30))
+                        .GET()
+                        .build())
+                .toList();
+
+        var deadline = System.nanoTime() + duration.toNanos();
+        var results = new ArrayList<Future<ClientResult>>(concurrency);
+
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var i = 0; i < concurrency; i++) {
+                var offset = i;
+                results.add(clients.submit(() -> runClient(client, requests, offset, deadline)));
+            }
+        }
+
+        report(results, duration, concurrency);
+    }
+
+    private static ClientResult runClient(HttpClient client, List<HttpRequest> requests, int offset, long deadline) {
+        var result = new ClientResult();
+
+        for (var i = offset; System.nanoTime() < deadline; i++) {
+            var request = requests.get(i % requests.size());
+            var start = System.nanoTime();
+
+            try {
+                var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+
+                if (response.statusCode() >= 500) {
+                    result.errors++;
+                } else {
+                    result.record(System.nanoTime() - start);
+                }
+            } catch (Exception e) {
+                result.errors++;
+            }
+        }
+
+        return result;
+    }
+
+    private static void report(List<Future<ClientResult>> results, Duration duration, int concurrency) throws Exception {
+        var latencies = new long[0];
+        var errors = 0L;
+
+        for (var future : results) {
+            var result = future.get();
+            var merged = Arrays.copyOf(latencies, latencies.length + result.count);
+            System.arraycopy(result.latencies, 0, merged, latencies.length, result.count);
+            latencies = merged;
+            errors += result.errors;
+        }
+
+        Arrays.sort(latencies);
+
+        System.out.printf("clients=%d duration=%ds requests=%d errors=%d throughput=%.1f req/s%n",
+                concurrency, duration.toSeconds(), latencies.length, errors,
+                latencies.length / (double) duration.toSeconds());
+        System.out.printf("p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0));
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+
+        var index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static class ClientResult {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        private void record(long latencyNanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+
+            latencies[count++] = latencyNanos;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package logan.tillman.ecom.benchmark;
+
+import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.dto.ProductPageDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Throughput benchmarks report ops/s, the *Latency variants report percentiles (p0.99) in us/op
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Benchmark
+    public ProductDTO getProduct(CatalogState catalog) {
+        return catalog.productService.getProduct(catalog.randomProductId());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ProductDTO getProductLatency(CatalogState catalog) {
+        return getProduct(catalog);
+    }
+
+    @Benchmark
+    public ProductPageDTO getProducts(CatalogState catalog) {
+        return catalog.productService.getProducts(null, 20);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ProductPageDTO getProductsLatency(CatalogState catalog) {
+        return getProducts(catalog);
+    }
+}
@@ -0,0 +1,138 @@
+package logan.tillman.ecom.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import logan.tillman.ecom.dao.CategoryRepository;
+import logan.tillman.ecom.mapper.DtoMapper;
+import logan.tillman.ecom.transaction.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+// The unpaged GET /categories response, kept serialized and gzipped so requests only copy bytes out.
+// Category writes evict the snapshot once they commit and rebuild it in the background, and a reader that
+// misses builds it itself, shared with other readers. Snapshots older than refresh-after-write are still
+// served while one background build replaces them, which picks up categories written by other instances
+@Slf4j
+@Component
+public class CategoryResponseSnapshot {
+
+    private static final Sort CATEGORY_ORDER = Sort.by("categoryId");
+    private static final String ALL_CATEGORIES = "all";
+
+    private final CategoryRepository categoryRepository;
+    private final DtoMapper dtoMapper;
+    private final ObjectMapper objectMapper;
+    private final Executor rebuildExecutor;
+
+    private final RevalidatingCache<String, Snapshot> cache;
+
+    public CategoryResponseSnapshot(CategoryRepository categoryRepository,
+                                    DtoMapper dtoMapper,
+                                    ObjectMapper objectMapper,
+                                    @Value("${ecom.cache.category.expire-after-write:10m}") Duration expireAfterWrite,
+                                    @Value("${ecom.cache.category.refresh-after-write:1m}") Duration refreshAfterWrite,
+                                    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor rebuildExecutor) {
+        this.categoryRepository = categoryRepository;
+        this.dtoMapper = dtoMapper;
+        this.objectMapper = objectMapper;
+        this.rebuildExecutor = rebuildExecutor;
+        this.cache = new RevalidatingCache<>(1, expireAfterWrite, refreshAfterWrite, rebuildExecutor);
+    }
+
+    public Snapshot get() {
+        return cache.get(ALL_CATEGORIES, key -> build());
+    }
+
+    // A build that overlaps the eviction is returned to its reader but not kept
+    public void invalidate() {
+        AfterCommit.run(() -> {
+            cache.invalidate(ALL_CATEGORIES);
+
+            try {
+                rebuildExecutor.execute(this::rebuild);
+            } catch (RejectedExecutionException e) {
+                log.warn("Unable to schedule category snapshot rebuild, the next request will build it", e);
+            }
+        });
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long coalescedWaiters() {
+        return cache.coalescedWaiters();
+    }
+
+    public long refreshes() {
+        return cache.refreshes();
+    }
+
+    public Cache<String, Snapshot> nativeCache() {
+        return cache.nativeCache();
+    }
+
+    // A no-op when a reader has already built the snapshot since the eviction
+    private void rebuild() {
+        try {
+            get();
+        } catch (RuntimeException e) {
+            log.warn("Unable to rebuild category snapshot, the next request will build it", e);
+        }
+    }
+
+    private Snapshot build() {
+        var categories = categoryRepository.findAllProjectedBy(CATEGORY_ORDER)
+                .stream()
+                .map(dtoMapper::mapToCategoryDTO)
+                .toList();
+
+        byte[] json;
+
+        try {
+            json = objectMapper.writeValueAsBytes(categories);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var snapshot = new Snapshot(json, gzip(json), DigestUtils.md5DigestAsHex(json), categories.size());
+        log.info("Built category snapshot of {} categories in {} bytes, {} gzipped",
+                snapshot.count(), json.length, snapshot.gzip().length);
+
+        return snapshot;
+    }
+
+    private static byte[] gzip(byte[] json) {
+        var compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+
+        try (var gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return compressed.toByteArray();
+    }
+
+    public record Snapshot(byte[] json, byte[] gzip, String hash, int count) {
+
+        // Each encoding is a different representation, so each gets its own strong tag
+        public String etag(boolean gzipped) {
+            return "\"" + hash + (gzipped ? "-gzip" : "") + "\"";
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package logan.tillman.ecom.cache;
+
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.dto.VersionedProductDTO;
+import logan.tillman.ecom.mapper.DtoMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class ProductBatchLoader {
+
+    private static final Sort PRODUCT_ORDER = Sort.by("productId");
+
+    private final ProductRepository productRepository;
+    private final DtoMapper dtoMapper;
+    private final Duration window;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private Batch pending;
+
+    public ProductBatchLoader(ProductRepository productRepository,
+                              DtoMapper dtoMapper,
+                              @Value("${ecom.products.coalesce.window:2ms}") Duration window,
+                              @Value("${ecom.products.coalesce.max-batch-size:100}") int maxBatchSize) {
+        this.productRepository = productRepository;
+        this.dtoMapper = dtoMapper;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    // Single-id loads arriving within the window share one query. The caller that opens a batch waits
+    // out the window, or until the batch is full, and then runs the query for everyone in it
+    public VersionedProductDTO load(Integer productId) {
+        if (window.isZero() || maxBatchSize < 2) {
+            return loadAll(Set.of(productId)).get(productId);
+        }
+
+        Batch batch;
+        CompletableFuture<VersionedProductDTO> result;
+        boolean leader;
+
+        synchronized (lock) {
+            leader = pending == null;
+
+            if (leader) {
+                pending = new Batch();
+            }
+
+            batch = pending;
+            result = batch.results.computeIfAbsent(productId, id -> new CompletableFuture<>());
+
+            if (batch.results.size() >= maxBatchSize) {
+                pending = null;
+                batch.full.countDown();
+            }
+        }
+
+        if (leader) {
+            run(batch);
+        }
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw e;
+        }
+    }
+
+    // Products found among the ids, keyed by id; unknown ids are left out
+    public Map<Integer, VersionedProductDTO> loadAll(Collection<Integer> productIds) {
+        log.info("Finding {} products by id", productIds.size());
+
+        return productRepository.findWithCategoriesByProductIdIn(productIds, PRODUCT_ORDER)
+                .stream()
+                .map(dtoMapper::mapToVersionedProductDTO)
+                .collect(Collectors.toMap(product -> product.getProduct().getProductId(), Function.identity()));
+    }
+
+    private void run(Batch batch) {
+        try {
+            batch.full.await(window.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Once the batch is closed no other thread adds to it, so its ids can be read outside the lock
+        synchronized (lock) {
+            if (pending == batch) {
+                pending = null;
+            }
+        }
+
+        try {
+            var products = loadAll(batch.results.keySet());
+            batch.results.forEach((productId, result) -> result.complete(products.get(productId)));
+        } catch (RuntimeException e) {
+            batch.results.values().forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    private static class Batch {
+        private final Map<Integer, CompletableFuture<VersionedProductDTO>> results = new LinkedHashMap<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+    }
+}
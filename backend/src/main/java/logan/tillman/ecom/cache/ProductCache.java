@@ -0,0 +1,78 @@
+package logan.tillman.ecom.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import logan.tillman.ecom.dto.VersionedProductDTO;
+import logan.tillman.ecom.transaction.AfterCommit;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+// Entries carry the tag of the version they were mapped from, so readers can tell a stale copy from the current row
+@Component
+public class ProductCache {
+
+    private final RevalidatingCache<Integer, VersionedProductDTO> cache;
+
+    public ProductCache(@Value("${ecom.cache.product.maximum-size:10000}") long maximumSize,
+                        @Value("${ecom.cache.product.expire-after-write:10m}") Duration expireAfterWrite,
+                        @Value("${ecom.cache.product.refresh-after-write:5m}") Duration refreshAfterWrite,
+                        @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor refreshExecutor) {
+        this.cache = new RevalidatingCache<>(maximumSize, expireAfterWrite, refreshAfterWrite, refreshExecutor);
+    }
+
+    // A null result from the loader is not cached, so missing products are looked up again. Concurrent
+    // misses for a product share one load, and products past refresh-after-write are reloaded in the background
+    public VersionedProductDTO get(Integer productId, Function<Integer, VersionedProductDTO> loader) {
+        return cache.get(productId, loader);
+    }
+
+    // Cached products plus whatever one call to the loader finds for the rest; ids found by neither are left out
+    public Map<Integer, VersionedProductDTO> getAll(Collection<Integer> productIds, Function<Set<Integer>, Map<Integer, VersionedProductDTO>> loader) {
+        return cache.getAll(productIds, loader);
+    }
+
+    // Puts inside a transaction are applied once it commits. Evictions run immediately and again after
+    // commit, so a reader that loaded the old row in between cannot leave it cached
+    public void put(VersionedProductDTO productDTO) {
+        AfterCommit.run(() -> cache.put(productDTO.getProduct().getProductId(), productDTO));
+    }
+
+    public void evict(Integer productId) {
+        cache.invalidate(productId);
+        AfterCommit.run(() -> cache.invalidate(productId));
+    }
+
+    // Cached products embed their category names, so a rename has to drop every product in that category
+    public void evictByCategory(Integer categoryId) {
+        Runnable eviction = () -> cache.invalidateIf(entry -> entry.getProduct().getCategories() != null
+                && entry.getProduct().getCategories().stream().anyMatch(category -> categoryId.equals(category.getCategoryId())));
+
+        eviction.run();
+        AfterCommit.run(eviction);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long coalescedWaiters() {
+        return cache.coalescedWaiters();
+    }
+
+    public long refreshes() {
+        return cache.refreshes();
+    }
+
+    public Cache<Integer, VersionedProductDTO> nativeCache() {
+        return cache.nativeCache();
+    }
+}
@@ -0,0 +1,218 @@
+package logan.tillman.ecom.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Caffeine cache with single-flight misses and stale-while-revalidate. Concurrent misses for a key share
+// one load, and entries older than refreshAfterWrite are still served while one background load replaces
+// them. Loads that overlap a write to their key, or an invalidateIf, are returned but not stored, so a read
+// that started before an update commits can neither overwrite the new entry nor bring back an evicted one
+@Slf4j
+public class RevalidatingCache<K, V> {
+
+    private final Cache<K, V> cache;
+    private final Duration refreshAfterWrite;
+    private final Executor refreshExecutor;
+
+    private final SingleFlight<K, V> loads = new SingleFlight<>();
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+    // Write counts for keys with a load in flight, dropped once the last load of the key finishes
+    private final ConcurrentHashMap<K, KeyWrites> inFlightWrites = new ConcurrentHashMap<>();
+    // invalidateIf cannot tell which in-flight keys it would have removed, so it counts against every load
+    private final AtomicLong predicateInvalidations = new AtomicLong();
+    private final LongAdder refreshes = new LongAdder();
+
+    public RevalidatingCache(long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite, Executor refreshExecutor) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.refreshAfterWrite = refreshAfterWrite;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    // A null result from the loader is not cached, so missing entries are looked up again
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        var value = cache.getIfPresent(key);
+
+        if (value != null) {
+            if (isStale(key)) {
+                refresh(key, loader);
+            }
+
+            return value;
+        }
+
+        return loads.execute(key, missingKey -> {
+            var generation = beginLoad(missingKey);
+
+            try {
+                V loaded = loader.apply(missingKey);
+                store(missingKey, loaded, generation, false);
+                return loaded;
+            } finally {
+                endLoad(missingKey);
+            }
+        });
+    }
+
+    // Cached entries plus whatever one call to the loader finds for the rest; keys found by neither are left out
+    public Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> loader) {
+        var values = new HashMap<>(cache.getAllPresent(keys));
+
+        values.keySet()
+                .stream()
+                .filter(this::isStale)
+                .forEach(key -> refresh(key, staleKey -> loader.apply(Set.of(staleKey)).get(staleKey)));
+
+        var missingKeys = new LinkedHashSet<>(keys);
+        missingKeys.removeAll(values.keySet());
+
+        if (!missingKeys.isEmpty()) {
+            var generations = new HashMap<K, Generation>();
+            missingKeys.forEach(key -> generations.put(key, beginLoad(key)));
+
+            try {
+                loader.apply(missingKeys).forEach((key, value) -> {
+                    var generation = generations.get(key);
+
+                    if (generation != null) {
+                        store(key, value, generation, false);
+                    }
+
+                    values.put(key, value);
+                });
+            } finally {
+                missingKeys.forEach(this::endLoad);
+            }
+        }
+
+        return values;
+    }
+
+    public void put(K key, V value) {
+        recordWrite(key);
+        cache.put(key, value);
+    }
+
+    public void invalidate(K key) {
+        recordWrite(key);
+        cache.invalidate(key);
+    }
+
+    public void invalidateIf(Predicate<? super V> predicate) {
+        predicateInvalidations.incrementAndGet();
+        cache.asMap().values().removeIf(predicate);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // Callers that waited on another caller's load of the same key instead of loading it themselves
+    public long coalescedWaiters() {
+        return loads.coalescedWaiters();
+    }
+
+    // Background loads that replaced or dropped a stale entry
+    public long refreshes() {
+        return refreshes.sum();
+    }
+
+    public Cache<K, V> nativeCache() {
+        return cache;
+    }
+
+    private boolean isStale(K key) {
+        return cache.policy()
+                .expireAfterWrite()
+                .flatMap(expiration -> expiration.ageOf(key))
+                .map(age -> age.compareTo(refreshAfterWrite) >= 0)
+                .orElse(false);
+    }
+
+    // At most one refresh per key is queued or running; a failed refresh leaves the stale entry until it expires
+    private void refresh(K key, Function<? super K, ? extends V> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+
+        var generation = beginLoad(key);
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    store(key, loader.apply(key), generation, true);
+                    refreshes.increment();
+                } catch (RuntimeException e) {
+                    log.warn("Unable to refresh cached entry {}", key, e);
+                } finally {
+                    endLoad(key);
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            endLoad(key);
+            refreshing.remove(key);
+            log.warn("Unable to schedule refresh of cached entry {}", key, e);
+        }
+    }
+
+    private Generation beginLoad(K key) {
+        var keyWrites = inFlightWrites.compute(key, (ignored, current) -> current == null
+                ? new KeyWrites(0, 1)
+                : new KeyWrites(current.writes(), current.loads() + 1));
+
+        return new Generation(keyWrites.writes(), predicateInvalidations.get());
+    }
+
+    private void endLoad(K key) {
+        inFlightWrites.computeIfPresent(key, (ignored, current) -> current.loads() == 1
+                ? null
+                : new KeyWrites(current.writes(), current.loads() - 1));
+    }
+
+    // Only keys with a load in flight are counted; a load that starts after the write sees the new value
+    private void recordWrite(K key) {
+        inFlightWrites.computeIfPresent(key, (ignored, current) -> new KeyWrites(current.writes() + 1, current.loads()));
+    }
+
+    // Compute runs atomically with writes to the same key, and every write is counted before it reaches
+    // the cache, so a load that overlapped one leaves whatever the write left behind
+    private void store(K key, V value, Generation generation, boolean replaceOnly) {
+        cache.asMap().compute(key, (ignored, current) -> {
+            var keyWrites = inFlightWrites.get(key);
+
+            if (keyWrites == null || keyWrites.writes() != generation.keyWrites()
+                    || predicateInvalidations.get() != generation.predicateInvalidations()
+                    || (replaceOnly && current == null)) {
+                return current;
+            }
+
+            return value;
+        });
+    }
+
+    private record KeyWrites(long writes, int loads) {
+    }
+
+    private record Generation(long keyWrites, long predicateInvalidations) {
+    }
+}
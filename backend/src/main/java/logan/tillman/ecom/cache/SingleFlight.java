@@ -0,0 +1,66 @@
+package logan.tillman.ecom.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Concurrent calls for the same key share one run of the loader: the first caller runs it on its own
+// thread and the others wait for its result, or its exception, instead of loading the key again
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalescedWaiters = new LongAdder();
+
+    public V execute(K key, Function<? super K, ? extends V> loader) {
+        var call = new CompletableFuture<V>();
+        var existingCall = inFlight.putIfAbsent(key, call);
+
+        if (existingCall != null) {
+            coalescedWaiters.increment();
+            return join(existingCall);
+        }
+
+        loads.increment();
+
+        try {
+            V value = loader.apply(key);
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    // Loader runs started, one per key per flight
+    public long loads() {
+        return loads.sum();
+    }
+
+    // Callers that waited on a load already in flight instead of starting their own
+    public long coalescedWaiters() {
+        return coalescedWaiters.sum();
+    }
+
+    private static <V> V join(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+
+            throw e;
+        }
+    }
+}
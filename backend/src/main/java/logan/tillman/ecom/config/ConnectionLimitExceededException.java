@@ -0,0 +1,10 @@
+package logan.tillman.ecom.config;
+
+import java.sql.SQLTransientConnectionException;
+
+public class ConnectionLimitExceededException extends SQLTransientConnectionException {
+
+    public ConnectionLimitExceededException(int maxConnections, long timeoutMillis) {
+        super("All " + maxConnections + " database connections stayed in use for " + timeoutMillis + "ms");
+    }
+}
@@ -0,0 +1,25 @@
+package logan.tillman.ecom.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// The limit is hit while a transaction or query opens its connection, so the exception arrives wrapped
+// in data access exceptions; handlers are matched against the whole cause chain
+@Slf4j
+@RestControllerAdvice
+public class ConnectionLimitExceptionHandler {
+
+    @ExceptionHandler(ConnectionLimitExceededException.class)
+    public ResponseEntity<Void> handleConnectionLimitExceeded(ConnectionLimitExceededException e) {
+        log.warn("Rejecting request over the database connection limit: {}", e.getMessage());
+
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+
+        return new ResponseEntity<>(headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
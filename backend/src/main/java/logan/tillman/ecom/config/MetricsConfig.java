@@ -0,0 +1,90 @@
+package logan.tillman.ecom.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import logan.tillman.ecom.cache.CategoryResponseSnapshot;
+import logan.tillman.ecom.cache.ProductCache;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// HTTP endpoints, Spring Data repositories and the Hikari pool are timed by the actuator auto-configuration;
+// this adds the @Timed services, statements per request with their query budgets and the cache meters.
+// Percentiles are set per meter in application.properties
+@Configuration
+@EnableConfigurationProperties(QueryBudgetProperties.class)
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    // Wraps whichever statement inspector is configured, such as the test profile's recorder, instead of replacing it
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new StatementCountingInspector(configuredInspector(properties.get(AvailableSettings.STATEMENT_INSPECTOR))));
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<StatementMetricsFilter> statementMetricsFilter(MeterRegistry meterRegistry,
+                                                                                 QueryBudgetProperties queryBudget) {
+        var registration = new FilterRegistrationBean<>(new StatementMetricsFilter(meterRegistry, queryBudget));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder cacheMetrics(ProductCache productCache, CategoryResponseSnapshot categoryResponseSnapshot) {
+        return meterRegistry -> {
+            CaffeineCacheMetrics.monitor(meterRegistry, productCache.nativeCache(), "products");
+            CaffeineCacheMetrics.monitor(meterRegistry, categoryResponseSnapshot.nativeCache(), "categories");
+
+            FunctionCounter.builder("ecom.cache.coalesced.waiters", productCache, ProductCache::coalescedWaiters)
+                    .description("Misses that waited on another request's load of the same key")
+                    .tag("cache", "products")
+                    .register(meterRegistry);
+            FunctionCounter.builder("ecom.cache.coalesced.waiters", categoryResponseSnapshot, CategoryResponseSnapshot::coalescedWaiters)
+                    .description("Misses that waited on another request's load of the same key")
+                    .tag("cache", "categories")
+                    .register(meterRegistry);
+
+            FunctionCounter.builder("ecom.cache.refreshes", productCache, ProductCache::refreshes)
+                    .description("Stale entries reloaded in the background")
+                    .tag("cache", "products")
+                    .register(meterRegistry);
+            FunctionCounter.builder("ecom.cache.refreshes", categoryResponseSnapshot, CategoryResponseSnapshot::refreshes)
+                    .description("Stale entries reloaded in the background")
+                    .tag("cache", "categories")
+                    .register(meterRegistry);
+        };
+    }
+
+    private static StatementInspector configuredInspector(Object inspector) {
+        if (inspector == null) {
+            return null;
+        }
+
+        if (inspector instanceof StatementInspector statementInspector) {
+            return statementInspector;
+        }
+
+        try {
+            var inspectorClass = inspector instanceof Class<?> type ? type : Class.forName(inspector.toString());
+            return (StatementInspector) inspectorClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create statement inspector " + inspector, e);
+        }
+    }
+}
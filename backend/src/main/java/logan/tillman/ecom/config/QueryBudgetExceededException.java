@@ -0,0 +1,8 @@
+package logan.tillman.ecom.config;
+
+public class QueryBudgetExceededException extends IllegalStateException {
+
+    public QueryBudgetExceededException(String method, String uri, int statements, int budget) {
+        super(method + " " + uri + " ran " + statements + " SQL statements, over its budget of " + budget);
+    }
+}
@@ -0,0 +1,32 @@
+package logan.tillman.ecom.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "ecom.query-budget")
+public class QueryBudgetProperties {
+
+    // Fail requests that go over budget instead of only logging them; meant for the test profile
+    private boolean enforce = false;
+
+    private int defaultBudget = 10;
+
+    // Running the same SQL this many times in one request is logged as a likely N+1 query
+    private int repeatedStatementThreshold = 3;
+
+    // Statements allowed per request, keyed by the handler's uri pattern and then the lower case HTTP
+    // method, e.g. ecom.query-budget.endpoints.[/products/{productId}].get=2. Negative means no budget
+    private Map<String, Map<String, Integer>> endpoints = new HashMap<>();
+
+    public int budget(String method, String uri) {
+        var methods = endpoints.get(uri);
+        var budget = methods == null ? null : methods.get(method.toLowerCase(Locale.ROOT));
+
+        return budget == null ? defaultBudget : budget;
+    }
+}
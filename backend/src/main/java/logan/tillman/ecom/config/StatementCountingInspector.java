@@ -0,0 +1,56 @@
+package logan.tillman.ecom.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Counts the SQL statements Hibernate prepares on the current thread while counting is started, then
+// passes each one on to the inspector configured before it, if there was one. Parameters are bound
+// later, so a statement repeated with different values, the shape of an N+1 query, has the same text
+public class StatementCountingInspector implements StatementInspector {
+
+    private static final ThreadLocal<Map<String, Integer>> STATEMENTS = new ThreadLocal<>();
+
+    private final StatementInspector delegate;
+
+    public StatementCountingInspector(StatementInspector delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        var statements = STATEMENTS.get();
+
+        if (statements != null) {
+            statements.merge(sql, 1, Integer::sum);
+        }
+
+        return delegate == null ? sql : delegate.inspect(sql);
+    }
+
+    public static void start() {
+        STATEMENTS.set(new HashMap<>());
+    }
+
+    // Statements counted since start; counting stops until the next start
+    public static Count stop() {
+        var statements = STATEMENTS.get();
+        STATEMENTS.remove();
+
+        if (statements == null || statements.isEmpty()) {
+            return new Count(0, null, 0);
+        }
+
+        var mostRepeated = statements.entrySet()
+                .stream()
+                .max(Map.Entry.comparingByValue())
+                .orElseThrow();
+
+        return new Count(statements.values().stream().mapToInt(Integer::intValue).sum(),
+                mostRepeated.getKey(), mostRepeated.getValue());
+    }
+
+    public record Count(int statements, String mostRepeatedSql, int mostRepeatedTimes) {
+    }
+}
@@ -0,0 +1,84 @@
+package logan.tillman.ecom.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Records how many SQL statements each request ran, tagged like http.server.requests so the two line up,
+// and checks the count against the endpoint's query budget. Statements run on other threads, such as a
+// coalesced product load led by another request, are not counted
+@Slf4j
+public class StatementMetricsFilter extends OncePerRequestFilter {
+
+    public static final String METRIC_NAME = "ecom.http.server.statements";
+
+    private final MeterRegistry meterRegistry;
+    private final QueryBudgetProperties queryBudget;
+
+    public StatementMetricsFilter(MeterRegistry meterRegistry, QueryBudgetProperties queryBudget) {
+        this.meterRegistry = meterRegistry;
+        this.queryBudget = queryBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementCountingInspector.Count count;
+        StatementCountingInspector.start();
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            count = StatementCountingInspector.stop();
+            record(request, response, count);
+        }
+
+        // Only reached when the request itself succeeded, so its own exception is never masked
+        var budget = queryBudget.budget(request.getMethod(), uri(request));
+
+        if (queryBudget.isEnforce() && budget >= 0 && count.statements() > budget) {
+            throw new QueryBudgetExceededException(request.getMethod(), uri(request), count.statements(), budget);
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, StatementCountingInspector.Count count) {
+        var method = request.getMethod();
+        var uri = uri(request);
+        var budget = queryBudget.budget(method, uri);
+        var overBudget = budget >= 0 && count.statements() > budget;
+
+        DistributionSummary.builder(METRIC_NAME)
+                .description("SQL statements prepared while handling a request")
+                .baseUnit("statements")
+                .tag("method", method)
+                .tag("uri", uri)
+                .tag("status", Integer.toString(response.getStatus()))
+                .tag("budget", overBudget ? "exceeded" : "within")
+                .register(meterRegistry)
+                .record(count.statements());
+
+        if (overBudget) {
+            log.warn("{} {} ran {} SQL statements, over its budget of {}", method, uri, count.statements(), budget);
+        }
+
+        // Endpoints without a budget, such as imports, repeat their inserts by design
+        if (budget >= 0 && count.mostRepeatedTimes() >= queryBudget.getRepeatedStatementThreshold()) {
+            log.warn("{} {} ran the same statement {} times, likely an N+1 query: {}",
+                    method, uri, count.mostRepeatedTimes(), count.mostRepeatedSql());
+        }
+    }
+
+    // Unmatched requests share one tag so stray URLs cannot create a meter each
+    private static String uri(HttpServletRequest request) {
+        var uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return uri == null ? "UNKNOWN" : uri.toString();
+    }
+}
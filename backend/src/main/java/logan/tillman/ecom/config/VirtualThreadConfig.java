@@ -0,0 +1,62 @@
+package logan.tillman.ecom.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+@EnableAsync
+@Configuration
+public class VirtualThreadConfig {
+
+    // Tomcat runs every request on its own virtual thread instead of the bounded platform pool
+    @Bean
+    @ConditionalOnProperty(name = "ecom.threads.virtual.enabled", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    // Replaces the auto-configured pool used by @Async methods and async MVC responses such as the export
+    @Bean(name = {
+            TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME
+    })
+    @ConditionalOnProperty(name = "ecom.threads.virtual.enabled", havingValue = "true")
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    // Virtual threads remove the thread pool as the natural limit on concurrency. The connection limit
+    // matches the Hikari pool, so threads wait on it for a bounded time instead of piling up on Hikari
+    // and timing out together under load
+    @Bean
+    @ConditionalOnProperty(name = "ecom.threads.virtual.enabled", havingValue = "true")
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(Environment environment) {
+        var binder = Binder.get(environment);
+        var maxConnections = binder.bind("spring.datasource.hikari.maximum-pool-size", Integer.class).orElse(10);
+        var acquireTimeout = binder.bind("ecom.threads.virtual.acquire-timeout", Duration.class).orElse(Duration.ofSeconds(2));
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionLimitingDataSource)) {
+                    return new ConnectionLimitingDataSource(dataSource, maxConnections, acquireTimeout);
+                }
+
+                return bean;
+            }
+        };
+    }
+}
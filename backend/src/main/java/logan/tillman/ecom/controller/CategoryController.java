@@ -1,21 +1,34 @@
 package logan.tillman.ecom.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import logan.tillman.ecom.dto.CategoryDTO;
+import logan.tillman.ecom.dto.CategoryProductPageDTO;
+import logan.tillman.ecom.dto.ResourceVersionDTO;
+import logan.tillman.ecom.dto.VersionedCategoryDTO;
 import logan.tillman.ecom.service.CategoryService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
 @Slf4j
 @RestController
+@Profile("!reactive")
 public class CategoryController {
 
     private final CategoryService categoryService;
@@ -25,8 +38,23 @@ public class CategoryController {
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<List<CategoryDTO>> getCategories() {
-        var categories = categoryService.getAllCategories();
+    public ResponseEntity<List<CategoryDTO>> getCategories(@RequestParam(required = false) Integer page,
+                                                           @RequestParam(defaultValue = "20") Integer size,
+                                                           @RequestParam(required = false) String include,
+                                                           WebRequest request) {
+        var includeProducts = "products".equals(include);
+        var version = categoryService.getCategoriesVersion(includeProducts);
+
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+
+        // The unpaged listing without products is served from the snapshot by getAllCategories
+        var categories = categoryService.getCategories(page == null ? 0 : page, size, includeProducts);
+
+        if (categories == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
 
         if (!categories.isEmpty()) {
             return new ResponseEntity<>(categories, HttpStatus.OK);
@@ -35,6 +63,35 @@ public class CategoryController {
         return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    // The unpaged listing is the common case, served from a prebuilt snapshot: the stored JSON or gzip
+    // bytes are written as they are, without a query or serialization, and tagged by a hash of the content
+    @GetMapping(value = "/categories", params = {"!page", "!include"})
+    public ResponseEntity<byte[]> getAllCategories(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                   WebRequest request) {
+        var snapshot = categoryService.getAllCategoriesSnapshot();
+
+        if (snapshot.count() == 0) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        var gzipped = acceptsGzip(acceptEncoding);
+
+        if (request.checkNotModified(snapshot.etag(gzipped))) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+
+        if (gzipped) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new ResponseEntity<>(snapshot.gzip(), headers, HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(snapshot.json(), headers, HttpStatus.OK);
+    }
+
     @PostMapping("/categories")
     public ResponseEntity<CategoryDTO> createCategory(@RequestBody CategoryDTO categoryDTO) {
         var category = categoryService.createCategory(categoryDTO);
@@ -47,7 +104,17 @@ public class CategoryController {
     }
 
     @GetMapping("/categories/{categoryId}")
-    public ResponseEntity<CategoryDTO> getCategory(@PathVariable Integer categoryId) {
+    public ResponseEntity<CategoryDTO> getCategory(@PathVariable Integer categoryId, WebRequest request) {
+        var version = categoryService.getCategoryVersion(categoryId);
+
+        if (version == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+
         var category = categoryService.getCategory(categoryId);
 
         if (category != null) {
@@ -57,15 +124,85 @@ public class CategoryController {
         return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    @GetMapping("/categories/{categoryId}/products")
+    public ResponseEntity<CategoryProductPageDTO> getCategoryProducts(@PathVariable Integer categoryId,
+                                                                      @RequestParam(required = false) List<Integer> categories,
+                                                                      @RequestParam(defaultValue = "0") Integer page,
+                                                                      @RequestParam(defaultValue = "20") Integer size) {
+        var products = categoryService.getCategoryProducts(categoryId, categories, page, size);
+
+        if (products == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        // Only an empty page can come from a category that does not exist
+        if (products.getTotal() == 0 && !categoryService.categoryExists(categoryId)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        return new ResponseEntity<>(products, HttpStatus.OK);
+    }
 
     @PutMapping("/categories/{categoryId}")
-    public ResponseEntity<CategoryDTO> updateCategory(@PathVariable Integer categoryId, @RequestBody CategoryDTO categoryDTO) {
-        var updatedCategory = categoryService.updateCategory(categoryId, categoryDTO);
+    public ResponseEntity<CategoryDTO> updateCategory(@PathVariable Integer categoryId,
+                                                      @RequestBody CategoryDTO categoryDTO,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        VersionedCategoryDTO updatedCategory;
+
+        try {
+            updatedCategory = categoryService.updateCategory(categoryId, categoryDTO, ifMatch);
+        } catch (OptimisticLockingFailureException e) {
+            log.info("Conflicting update of category with id {}", categoryId);
+            return new ResponseEntity<>(ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED);
+        }
 
         if (updatedCategory != null) {
-            return new ResponseEntity<>(updatedCategory, HttpStatus.OK);
+            var headers = new HttpHeaders();
+            headers.setETag(updatedCategory.getEtag());
+
+            return new ResponseEntity<>(updatedCategory.getCategory(), headers, HttpStatus.OK);
         }
 
         return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
+
+    @PatchMapping(value = "/categories/{categoryId}", consumes = "application/merge-patch+json")
+    public ResponseEntity<Void> patchCategory(@PathVariable Integer categoryId,
+                                              @RequestBody JsonNode patch,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ResourceVersionDTO version;
+
+        try {
+            version = categoryService.patchCategory(categoryId, patch, ifMatch);
+        } catch (OptimisticLockingFailureException e) {
+            log.info("Conflicting patch of category with id {}", categoryId);
+            return new ResponseEntity<>(ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED);
+        }
+
+        if (version != null) {
+            var headers = new HttpHeaders();
+            headers.setETag(version.getEtag());
+
+            return new ResponseEntity<>(headers, HttpStatus.NO_CONTENT);
+        }
+
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    // True when gzip is listed in Accept-Encoding without q=0
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (var coding : acceptEncoding.split(",")) {
+            var parameters = coding.split(";");
+
+            if ("gzip".equalsIgnoreCase(parameters[0].trim())) {
+                return parameters.length < 2 || !parameters[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+
+        return false;
+    }
 }
@@ -1,28 +1,62 @@
 package logan.tillman.ecom.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 
+import logan.tillman.ecom.dto.ProductBatchResultDTO;
 import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.dto.ProductFacetPageDTO;
+import logan.tillman.ecom.dto.ProductImportSummaryDTO;
+import logan.tillman.ecom.dto.ProductPageDTO;
+import logan.tillman.ecom.dto.ProductReleasePageDTO;
+import logan.tillman.ecom.dto.ProductSuggestionDTO;
+import logan.tillman.ecom.dto.ResourceVersionDTO;
+import logan.tillman.ecom.dto.VersionedProductDTO;
+import logan.tillman.ecom.service.ProductExportService;
+import logan.tillman.ecom.service.ProductImportService;
+import logan.tillman.ecom.service.ProductSearchService;
 import logan.tillman.ecom.service.ProductService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @Slf4j
 @RestController
+@Profile("!reactive")
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final ProductSearchService productSearchService;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService,
+                             ProductImportService productImportService,
+                             ProductExportService productExportService,
+                             ProductSearchService productSearchService) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.productExportService = productExportService;
+        this.productSearchService = productSearchService;
     }
 
     @PostMapping("/products")
@@ -36,23 +70,221 @@ public class ProductController {
         return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
 
+    @PostMapping("/products/batch")
+    public ResponseEntity<List<ProductBatchResultDTO>> createProducts(@RequestBody List<ProductDTO> productDTOs) {
+        var results = productService.createProducts(productDTOs);
+
+        if (results != null) {
+            return new ResponseEntity<>(results, HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    @PutMapping("/products/batch")
+    public ResponseEntity<List<ProductBatchResultDTO>> updateProducts(@RequestBody List<ProductDTO> productDTOs) {
+        List<ProductBatchResultDTO> results;
+
+        try {
+            results = productService.updateProducts(productDTOs);
+        } catch (OptimisticLockingFailureException e) {
+            log.error("Batch update kept conflicting with other edits", e);
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+
+        if (results != null) {
+            return new ResponseEntity<>(results, HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    @PostMapping(value = "/products/import", consumes = "application/x-ndjson")
+    public ResponseEntity<ProductImportSummaryDTO> importProducts(InputStream body) {
+        var summary = productImportService.importProducts(body);
+
+        if (summary != null) {
+            return new ResponseEntity<>(summary, HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    // The body is written on an async thread after this returns, so the export transaction
+    // and cursor only live as long as the response is being streamed
+    @GetMapping("/products/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = ProductExportService.NDJSON) String format) {
+        if (!ProductExportService.isSupportedFormat(format)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        var headers = new HttpHeaders();
+        headers.setContentType(ProductExportService.CSV.equals(format)
+                ? new MediaType("text", "csv")
+                : MediaType.APPLICATION_NDJSON);
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products." + format);
+
+        StreamingResponseBody body = outputStream -> productExportService.exportProducts(format, outputStream);
+
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    @GetMapping("/products")
+    public ResponseEntity<ProductPageDTO> getProducts(@RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "20") Integer size) {
+        var page = productService.getProducts(cursor, size);
+
+        if (page != null) {
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    // Matched on either bound, so a range missing the other one is rejected instead of falling through to
+    // the unfiltered listing
+    @GetMapping(value = "/products", params = "releasedAfter")
+    public ResponseEntity<ProductReleasePageDTO> getProductsReleasedBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime releasedAfter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime releasedBefore,
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(defaultValue = "20") Integer size) {
+        var products = productService.getProductsReleasedBetween(releasedAfter, releasedBefore, page, size);
+
+        if (products != null) {
+            return new ResponseEntity<>(products, HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    @GetMapping(value = "/products", params = {"releasedBefore", "!releasedAfter"})
+    public ResponseEntity<ProductReleasePageDTO> getProductsReleasedBefore(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime releasedBefore,
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(defaultValue = "20") Integer size) {
+        return getProductsReleasedBetween(null, releasedBefore, page, size);
+    }
+
+    @GetMapping(value = "/products", params = "category")
+    public ResponseEntity<ProductFacetPageDTO> getProductsInCategories(@RequestParam("category") List<Integer> categoryIds,
+                                                                       @RequestParam(defaultValue = "all") String mode,
+                                                                       @RequestParam(defaultValue = "0") Integer page,
+                                                                       @RequestParam(defaultValue = "20") Integer size) {
+        var products = productService.getProductsInCategories(categoryIds, mode, page, size);
+
+        if (products != null) {
+            return new ResponseEntity<>(products, HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    @GetMapping(value = "/products", params = "ids")
+    public ResponseEntity<List<ProductDTO>> getProductsById(@RequestParam("ids") List<Integer> productIds) {
+        return lookupProducts(productIds);
+    }
+
+    @PostMapping("/products/lookup")
+    public ResponseEntity<List<ProductDTO>> lookupProducts(@RequestBody List<Integer> productIds) {
+        var products = productService.getProductsById(productIds);
+
+        if (products != null) {
+            return new ResponseEntity<>(products, HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    @GetMapping("/products/search")
+    public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam String q,
+                                                           @RequestParam(defaultValue = "0") Integer page,
+                                                           @RequestParam(defaultValue = "20") Integer size) {
+        var products = productSearchService.searchProducts(q, page, size);
+
+        if (products != null) {
+            return new ResponseEntity<>(products, HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    @GetMapping("/products/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggestProducts(@RequestParam String prefix,
+                                                                      @RequestParam(defaultValue = "10") Integer limit) {
+        var suggestions = productService.suggestProducts(prefix, limit);
+
+        if (suggestions != null) {
+            return new ResponseEntity<>(suggestions, HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
     @GetMapping("/products/{productId}")
-    public ResponseEntity<ProductDTO> getProduct(@PathVariable Integer productId) {
-        var product = productService.getProduct(productId);
+    public ResponseEntity<ProductDTO> getProduct(@PathVariable Integer productId, WebRequest request) {
+        var version = productService.getProductVersion(productId);
 
-        if (product != null) {
-            return new ResponseEntity<>(product, HttpStatus.OK);
+        if (version == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        // A cached copy at another version is reloaded, so the validators name the copy actually sent
+        var product = productService.getProduct(productId, version.getEtag());
+
+        if (product == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        if (request.checkNotModified(product.getEtag(), version.getLastModified())) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+
+        return new ResponseEntity<>(product.getProduct(), HttpStatus.OK);
     }
 
     @PutMapping("/products/{productId}")
-    public ResponseEntity<ProductDTO> updateProduct(@PathVariable Integer productId, @RequestBody ProductDTO productDTO) {
-        var updatedProduct = productService.updateProduct(productId, productDTO);
+    public ResponseEntity<ProductDTO> updateProduct(@PathVariable Integer productId,
+                                                    @RequestBody ProductDTO productDTO,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        VersionedProductDTO updatedProduct;
+
+        try {
+            updatedProduct = productService.updateProduct(productId, productDTO, ifMatch);
+        } catch (OptimisticLockingFailureException e) {
+            // A stale If-Match fails the precondition; without one the client lost a race with another edit
+            log.info("Conflicting update of product with id {}", productId);
+            return new ResponseEntity<>(ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED);
+        }
 
         if (updatedProduct != null) {
-            return new ResponseEntity<>(updatedProduct, HttpStatus.OK);
+            var headers = new HttpHeaders();
+            headers.setETag(updatedProduct.getEtag());
+
+            return new ResponseEntity<>(updatedProduct.getProduct(), headers, HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    @PatchMapping(value = "/products/{productId}", consumes = "application/merge-patch+json")
+    public ResponseEntity<Void> patchProduct(@PathVariable Integer productId,
+                                             @RequestBody JsonNode patch,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ResourceVersionDTO version;
+
+        try {
+            version = productService.patchProduct(productId, patch, ifMatch);
+        } catch (OptimisticLockingFailureException e) {
+            log.info("Conflicting patch of product with id {}", productId);
+            return new ResponseEntity<>(ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED);
+        }
+
+        if (version != null) {
+            var headers = new HttpHeaders();
+            headers.setETag(version.getEtag());
+
+            return new ResponseEntity<>(headers, HttpStatus.NO_CONTENT);
         }
 
         return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
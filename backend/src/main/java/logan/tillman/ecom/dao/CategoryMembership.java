@@ -0,0 +1,7 @@
+package logan.tillman.ecom.dao;
+
+public interface CategoryMembership {
+    Integer getCategoryId();
+
+    Integer getProductId();
+}
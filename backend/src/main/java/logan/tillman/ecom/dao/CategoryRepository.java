@@ -1,7 +1,39 @@
 package logan.tillman.ecom.dao;
 
 import logan.tillman.ecom.entity.Category;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<Category, Integer> {
+    // Projections only select category_id and name, so no product associations are loaded
+    List<CategorySummary> findAllProjectedBy(Sort sort);
+
+    List<CategorySummary> findAllProjectedBy(Pageable pageable);
+
+    @EntityGraph(Category.WITH_PRODUCTS)
+    Optional<Category> findWithProductsByCategoryId(Integer categoryId);
+
+    @EntityGraph(Category.WITH_PRODUCTS)
+    List<Category> findWithProductsByCategoryIdIn(Collection<Integer> categoryIds, Sort sort);
+
+    @Query("select c.categoryId from Category c")
+    List<Integer> findCategoryIds(Pageable pageable);
+
+    @Query("select c.version as version, c.updatedAt as updatedAt, count(p) as productCount, " +
+            "coalesce(sum(p.version), 0) as productVersions, max(p.updatedAt) as productsUpdatedAt " +
+            "from Category c left join c.products p where c.categoryId = :categoryId " +
+            "group by c.categoryId, c.version, c.updatedAt")
+    Optional<CategoryVersion> findVersionByCategoryId(@Param("categoryId") Integer categoryId);
+
+    @Query("select count(c) as count, coalesce(sum(c.version), 0) as versions, " +
+            "max(c.updatedAt) as lastModified from Category c")
+    TableVersion findTableVersion();
 }
@@ -0,0 +1,7 @@
+package logan.tillman.ecom.dao;
+
+public interface CategorySummary {
+    Integer getCategoryId();
+
+    String getName();
+}
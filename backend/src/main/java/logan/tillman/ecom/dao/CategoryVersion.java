@@ -0,0 +1,16 @@
+package logan.tillman.ecom.dao;
+
+import java.time.OffsetDateTime;
+
+public interface CategoryVersion {
+    Long getVersion();
+
+    OffsetDateTime getUpdatedAt();
+
+    // The category body lists its products, so their count and versions are part of its version
+    Long getProductCount();
+
+    Long getProductVersions();
+
+    OffsetDateTime getProductsUpdatedAt();
+}
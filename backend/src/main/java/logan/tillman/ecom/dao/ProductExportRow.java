@@ -0,0 +1,15 @@
+package logan.tillman.ecom.dao;
+
+import java.time.OffsetDateTime;
+
+public interface ProductExportRow {
+    Integer getProductId();
+
+    String getTitle();
+
+    String getDescription();
+
+    OffsetDateTime getReleaseDate();
+
+    Integer getCategoryId();
+}
@@ -1,11 +1,87 @@
 package logan.tillman.ecom.dao;
 
+import jakarta.persistence.QueryHint;
 import logan.tillman.ecom.entity.Product;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, Integer> {
-    List<Product> findByReleaseDateBetween(OffsetDateTime start, OffsetDateTime end);
+    // Served by the (release_date, product_id) index as a range scan; the projection keeps the
+    // categories out of the query entirely
+    List<ProductSummary> findByReleaseDateBetween(OffsetDateTime start, OffsetDateTime end, Pageable pageable);
+
+    @EntityGraph(Product.WITH_CATEGORIES)
+    Optional<Product> findWithCategoriesByProductId(Integer productId);
+
+    @EntityGraph(Product.WITH_CATEGORIES)
+    List<Product> findWithCategoriesByProductIdIn(Collection<Integer> productIds, Sort sort);
+
+    // Keyset page: seeks past the last seen id instead of using OFFSET. Only ids are selected so
+    // the categories can be fetched afterwards without paginating a collection fetch in memory
+    @Query("select p.productId from Product p where p.productId > :productId order by p.productId")
+    List<Integer> findProductIdsAfter(@Param("productId") Integer productId, Pageable pageable);
+
+    List<ProductSummary> findByProductIdIn(Collection<Integer> productIds);
+
+    // Validators for conditional GETs, read without loading or mapping the product
+    @Query("select p.version as version, p.updatedAt as updatedAt, max(c.updatedAt) as categoriesUpdatedAt " +
+            "from Product p left join p.categories c where p.productId = :productId " +
+            "group by p.productId, p.version, p.updatedAt")
+    Optional<ProductVersion> findVersionByProductId(@Param("productId") Integer productId);
+
+    @Query("select count(p) as count, coalesce(sum(p.version), 0) as versions, " +
+            "max(p.updatedAt) as lastModified from Product p")
+    TableVersion findTableVersion();
+
+    // Ranked against the generated, GIN-indexed search_vector column (see product_table.sql)
+    @Query(value = "select p.product_id from product p, websearch_to_tsquery('english', :query) q " +
+            "where p.search_vector @@ q " +
+            "order by ts_rank(p.search_vector, q) desc, p.product_id " +
+            "limit :limit offset :offset", nativeQuery = true)
+    List<Integer> searchProductIds(@Param("query") String query, @Param("limit") int limit, @Param("offset") long offset);
+
+    // Portable fallback for databases without full-text search, such as the H2 test database. The query
+    // must already be escaped with ProductSearchService.escapeLike so its % and _ match literally
+    @Query("select p.productId from Product p " +
+            "where lower(p.title) like lower(concat('%', :query, '%')) escape '!' " +
+            "or lower(p.description) like lower(concat('%', :query, '%')) escape '!' " +
+            "order by p.productId")
+    List<Integer> searchProductIdsByText(@Param("query") String query, Pageable pageable);
+
+    // Forward-only cursor over one row per product/category pair. Rows are scalars, so nothing is
+    // added to the persistence context while streaming; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p.productId as productId, p.title as title, p.description as description, " +
+            "p.releaseDate as releaseDate, c.categoryId as categoryId " +
+            "from Product p left join p.categories c order by p.productId, c.categoryId")
+    Stream<ProductExportRow> streamExportRows();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p.productId as productId, p.title as title from Product p order by p.productId")
+    Stream<ProductTitle> streamTitles();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c.categoryId as categoryId, p.productId as productId from Product p join p.categories c")
+    Stream<CategoryMembership> streamCategoryMemberships();
 }
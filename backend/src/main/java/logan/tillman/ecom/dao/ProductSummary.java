@@ -0,0 +1,13 @@
+package logan.tillman.ecom.dao;
+
+import java.time.OffsetDateTime;
+
+public interface ProductSummary {
+    Integer getProductId();
+
+    String getTitle();
+
+    String getDescription();
+
+    OffsetDateTime getReleaseDate();
+}
@@ -0,0 +1,7 @@
+package logan.tillman.ecom.dao;
+
+public interface ProductTitle {
+    Integer getProductId();
+
+    String getTitle();
+}
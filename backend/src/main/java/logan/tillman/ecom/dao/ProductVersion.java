@@ -0,0 +1,12 @@
+package logan.tillman.ecom.dao;
+
+import java.time.OffsetDateTime;
+
+public interface ProductVersion {
+    Long getVersion();
+
+    OffsetDateTime getUpdatedAt();
+
+    // Category names are part of the product representation, so renaming one changes it too
+    OffsetDateTime getCategoriesUpdatedAt();
+}
@@ -0,0 +1,13 @@
+package logan.tillman.ecom.dao;
+
+import java.time.OffsetDateTime;
+
+// Rows are never deleted and versions only grow, so the row count and the version total move
+// whenever any row is inserted or updated
+public interface TableVersion {
+    Long getCount();
+
+    Long getVersions();
+
+    OffsetDateTime getLastModified();
+}
@@ -0,0 +1,15 @@
+package logan.tillman.ecom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategoryFacetDTO {
+    Integer categoryId;
+    Integer count;
+}
@@ -0,0 +1,17 @@
+package logan.tillman.ecom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductBatchResultDTO {
+    Integer index;
+    Integer productId;
+    Boolean success;
+    String error;
+}
@@ -0,0 +1,20 @@
+package logan.tillman.ecom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductFacetPageDTO {
+    List<ProductDTO> products;
+    Integer page;
+    Integer size;
+    Integer total;
+    List<CategoryFacetDTO> facets;
+}
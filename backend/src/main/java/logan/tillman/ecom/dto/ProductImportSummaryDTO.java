@@ -0,0 +1,20 @@
+package logan.tillman.ecom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductImportSummaryDTO {
+    Integer processed;
+    Integer succeeded;
+    Integer failed;
+    Integer chunks;
+    List<ProductBatchResultDTO> failures;
+}
@@ -8,12 +8,19 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @Entity
@@ -21,8 +28,11 @@ import java.util.List;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
+@DynamicUpdate
 @Table(name = "category")
+@NamedEntityGraph(name = Category.WITH_PRODUCTS, attributeNodes = @NamedAttributeNode("products"))
 public class Category {
+    public static final String WITH_PRODUCTS = "Category.products";
 
     @Id
     @Column(name = "category_id")
@@ -32,7 +42,31 @@ public class Category {
     @Column(name = "name")
     private String name;
 
-    @ManyToMany(mappedBy = "categories", cascade = CascadeType.PERSIST, fetch = FetchType.EAGER)
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private OffsetDateTime updatedAt;
+
+    @ToString.Exclude
+    @ManyToMany(mappedBy = "categories", cascade = CascadeType.PERSIST, fetch = FetchType.LAZY)
     private List<Product> products;
 
+    // Identity is the database id, so categories keep their place in a product's category set when
+    // they are renamed. The constant hash code stays stable from before persist to after it
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        return other instanceof Category category && categoryId != null && categoryId.equals(category.getCategoryId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Category.class.hashCode();
+    }
 }
@@ -0,0 +1,186 @@
+package logan.tillman.ecom.index;
+
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.transaction.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class CategoryMembershipIndex {
+
+    private final ProductRepository productRepository;
+
+    // One compressed bitmap of product ids per category. RoaringBitmap is not thread safe, so
+    // readers share the read lock and membership changes take the write lock
+    private final Map<Integer, RoaringBitmap> productsByCategory = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Requests are served before ApplicationReadyEvent, so memberships that change while load() streams
+    // are recorded here and replayed over the loaded bitmaps; guarded by the write lock
+    private final Map<Integer, Set<Integer>> changedDuringLoad = new LinkedHashMap<>();
+    private boolean loading;
+
+    public CategoryMembershipIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+            changedDuringLoad.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        var loaded = new HashMap<Integer, RoaringBitmap>();
+
+        try (var memberships = productRepository.streamCategoryMemberships()) {
+            memberships.forEach(membership -> loaded
+                    .computeIfAbsent(membership.getCategoryId(), categoryId -> new RoaringBitmap())
+                    .add(membership.getProductId()));
+        }
+
+        loaded.values().forEach(RoaringBitmap::runOptimize);
+
+        lock.writeLock().lock();
+        try {
+            productsByCategory.clear();
+            productsByCategory.putAll(loaded);
+            changedDuringLoad.forEach(this::applyCategories);
+
+            log.info("Indexed category membership for {} categories, replaying {} changes made while loading",
+                    loaded.size(), changedDuringLoad.size());
+
+            changedDuringLoad.clear();
+            loading = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Replaces every membership of the product, applied once the surrounding transaction commits
+    public void setCategories(Integer productId, Collection<Integer> categoryIds) {
+        var newCategoryIds = Set.copyOf(categoryIds);
+
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                applyCategories(productId, newCategoryIds);
+
+                // Setting the categories is idempotent, so replaying a change the load already saw is harmless
+                if (loading) {
+                    changedDuringLoad.remove(productId);
+                    changedDuringLoad.put(productId, newCategoryIds);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void applyCategories(Integer productId, Set<Integer> categoryIds) {
+        productsByCategory.forEach((categoryId, productIds) -> {
+            if (!categoryIds.contains(categoryId)) {
+                productIds.remove(productId);
+            }
+        });
+
+        for (var categoryId : categoryIds) {
+            productsByCategory.computeIfAbsent(categoryId, key -> new RoaringBitmap()).add(productId);
+        }
+    }
+
+    public int count(Integer categoryId) {
+        lock.readLock().lock();
+        try {
+            var productIds = productsByCategory.get(categoryId);
+            return productIds == null ? 0 : productIds.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns a copy the caller owns: the products in all of the categories, or in any of them
+    public RoaringBitmap members(Collection<Integer> categoryIds, boolean matchAll) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = null;
+
+            for (var categoryId : categoryIds) {
+                var productIds = productsByCategory.getOrDefault(categoryId, new RoaringBitmap());
+
+                if (result == null) {
+                    result = productIds.clone();
+                } else if (matchAll) {
+                    result.and(productIds);
+                } else {
+                    result.or(productIds);
+                }
+
+                if (matchAll && result.isEmpty()) {
+                    break;
+                }
+            }
+
+            return result == null ? new RoaringBitmap() : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Number of the given products in each category, for every category that has any of them
+    public Map<Integer, Integer> facetCounts(RoaringBitmap productIds) {
+        lock.readLock().lock();
+        try {
+            var counts = new TreeMap<Integer, Integer>();
+
+            productsByCategory.forEach((categoryId, categoryProductIds) -> {
+                var count = RoaringBitmap.andCardinality(productIds, categoryProductIds);
+
+                if (count > 0) {
+                    counts.put(categoryId, count);
+                }
+            });
+
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ascending product ids of one page of the bitmap, found by rank rather than by walking the page before it
+    public static int[] page(RoaringBitmap productIds, long offset, int size) {
+        var cardinality = productIds.getLongCardinality();
+
+        if (offset >= cardinality) {
+            return new int[0];
+        }
+
+        var pageIds = new int[(int) Math.min(size, cardinality - offset)];
+        var iterator = productIds.getIntIterator();
+        iterator.advanceIfNeeded(productIds.select((int) offset));
+
+        for (var i = 0; i < pageIds.length; i++) {
+            pageIds[i] = iterator.next();
+        }
+
+        return pageIds;
+    }
+}
@@ -0,0 +1,411 @@
+package logan.tillman.ecom.index;
+
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.dto.ProductSuggestionDTO;
+import logan.tillman.ecom.transaction.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Component
+public class ProductTitleIndex {
+
+    // Bounds the work done per keystroke for very common prefixes
+    private static final int MAX_CANDIDATES = 10_000;
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Comparator<ProductSuggestionDTO> SUGGESTION_ORDER = Comparator
+            .comparingInt((ProductSuggestionDTO suggestion) -> suggestion.getTitle().length())
+            .thenComparing(ProductSuggestionDTO::getTitle);
+
+    private final ProductRepository productRepository;
+    private final int maxEntries;
+    private final int rebuildThreshold;
+    private final Executor rebuildExecutor;
+
+    // Titles written since the snapshot was built. They shadow the snapshot and are folded into a new
+    // snapshot once there are rebuildThreshold of them. recentTerms maps each of their words to the
+    // products using it, so a keystroke only checks the recent titles that share the typed prefix;
+    // both maps are only written under recentLock
+    private final ConcurrentHashMap<Integer, String> recentTitles = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<Integer>> recentTerms = new ConcurrentSkipListMap<>();
+    private final Object recentLock = new Object();
+    // load and rebuild each replace the snapshot from the one they started from, so they run one at a time
+    private final Object snapshotLock = new Object();
+    // At most one background rebuild is queued or running; it runs again if the threshold was reached meanwhile
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile Snapshot snapshot = new SnapshotBuilder(0).build();
+
+    public ProductTitleIndex(ProductRepository productRepository,
+                             @Value("${ecom.suggest.max-entries:5000000}") int maxEntries,
+                             @Value("${ecom.suggest.rebuild-threshold:10000}") int rebuildThreshold,
+                             @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor rebuildExecutor) {
+        this.productRepository = productRepository;
+        this.maxEntries = maxEntries;
+        this.rebuildThreshold = rebuildThreshold;
+        this.rebuildExecutor = rebuildExecutor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        synchronized (snapshotLock) {
+            var builder = new SnapshotBuilder(maxEntries);
+
+            try (var titles = productRepository.streamTitles()) {
+                titles.forEach(title -> builder.add(title.getProductId(), title.getTitle()));
+            }
+
+            snapshot = builder.build();
+            log.info("Indexed {} product titles for suggestions", snapshot.size());
+        }
+    }
+
+    public void put(Integer productId, String title) {
+        if (productId == null || title == null) {
+            return;
+        }
+
+        AfterCommit.run(() -> {
+            synchronized (recentLock) {
+                var previousTitle = recentTitles.put(productId, title);
+                addRecentTerms(productId, title);
+
+                if (previousTitle != null) {
+                    removeRecentTerms(productId, previousTitle, title);
+                }
+            }
+
+            scheduleRebuild();
+        });
+    }
+
+    public List<ProductSuggestionDTO> suggest(String prefix, int limit) {
+        var tokens = tokenize(prefix);
+
+        if (tokens.length == 0 || limit < 1) {
+            return List.of();
+        }
+
+        var suggestions = new ArrayList<ProductSuggestionDTO>(limit);
+
+        searchRecent(tokens, limit, suggestions);
+        snapshot.search(tokens, limit, recentTitles, suggestions);
+        suggestions.sort(SUGGESTION_ORDER);
+
+        return suggestions;
+    }
+
+    public int size() {
+        return snapshot.size() + recentTitles.size();
+    }
+
+    void rebuild() {
+        synchronized (snapshotLock) {
+            var folded = Map.copyOf(recentTitles);
+            var builder = new SnapshotBuilder(maxEntries);
+
+            snapshot.forEach((productId, title) -> {
+                if (!folded.containsKey(productId)) {
+                    builder.add(productId, title);
+                }
+            });
+            folded.forEach(builder::add);
+
+            snapshot = builder.build();
+
+            // Only drop titles that were not rewritten while the snapshot was being built
+            synchronized (recentLock) {
+                folded.forEach((productId, title) -> {
+                    if (recentTitles.remove(productId, title)) {
+                        removeRecentTerms(productId, title, null);
+                    }
+                });
+            }
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (recentTitles.size() < rebuildThreshold || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            rebuildExecutor.execute(this::rebuildInBackground);
+        } catch (RejectedExecutionException e) {
+            rebuilding.set(false);
+            log.warn("Unable to schedule suggestion index rebuild, the next title written will retry", e);
+        }
+    }
+
+    private void rebuildInBackground() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Unable to rebuild suggestion index, the next title written will retry", e);
+        } finally {
+            rebuilding.set(false);
+        }
+
+        // Titles written while this rebuild ran may have reached the threshold again
+        scheduleRebuild();
+    }
+
+    private void searchRecent(String[] tokens, int limit, List<ProductSuggestionDTO> out) {
+        var seed = longestToken(tokens);
+        var seen = new HashSet<Integer>();
+
+        for (var term : recentTerms.tailMap(seed).entrySet()) {
+            if (!term.getKey().startsWith(seed)) {
+                return;
+            }
+
+            for (var productId : term.getValue()) {
+                if (out.size() >= limit) {
+                    return;
+                }
+
+                var title = recentTitles.get(productId);
+
+                if (title != null && seen.add(productId) && matches(title, tokens)) {
+                    out.add(suggestion(productId, title));
+                }
+            }
+        }
+    }
+
+    private void addRecentTerms(Integer productId, String title) {
+        for (var word : tokenize(title)) {
+            recentTerms.computeIfAbsent(word, key -> ConcurrentHashMap.newKeySet()).add(productId);
+        }
+    }
+
+    // Drops the product from the words of its old title, except those its current title still uses
+    private void removeRecentTerms(Integer productId, String title, String currentTitle) {
+        var kept = currentTitle == null ? Set.<String>of() : new HashSet<>(Arrays.asList(tokenize(currentTitle)));
+
+        for (var word : tokenize(title)) {
+            if (!kept.contains(word)) {
+                recentTerms.computeIfPresent(word, (key, productIds) -> {
+                    productIds.remove(productId);
+                    return productIds.isEmpty() ? null : productIds;
+                });
+            }
+        }
+    }
+
+    // The longest token is the most selective one, so candidates are drawn from its words
+    private static String longestToken(String[] tokens) {
+        return Arrays.stream(tokens).max(Comparator.comparingInt(String::length)).orElseThrow();
+    }
+
+    private static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+
+        return Arrays.stream(WORD_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    // Every query token has to prefix some word of the title, in any order
+    private static boolean matches(String title, String[] tokens) {
+        var words = tokenize(title);
+
+        for (var token : tokens) {
+            var found = false;
+
+            for (var word : words) {
+                if (word.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+
+            if (!found) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static ProductSuggestionDTO suggestion(Integer productId, String title) {
+        return ProductSuggestionDTO.builder()
+                .productId(productId)
+                .title(title)
+                .build();
+    }
+
+    // Immutable, array-backed index. Titles are stored as UTF-8 back to back in one byte array and
+    // each distinct word maps to the slots of the titles containing it, so the heap cost is a few
+    // bytes per title and word occurrence rather than an object per entry
+    private static final class Snapshot {
+        private final int[] productIds;
+        private final int[] titleOffsets;
+        private final byte[] titleBytes;
+        private final String[] terms;
+        private final int[] postingOffsets;
+        private final int[] postings;
+
+        private Snapshot(int[] productIds, int[] titleOffsets, byte[] titleBytes,
+                         String[] terms, int[] postingOffsets, int[] postings) {
+            this.productIds = productIds;
+            this.titleOffsets = titleOffsets;
+            this.titleBytes = titleBytes;
+            this.terms = terms;
+            this.postingOffsets = postingOffsets;
+            this.postings = postings;
+        }
+
+        private int size() {
+            return productIds.length;
+        }
+
+        private String title(int slot) {
+            return new String(titleBytes, titleOffsets[slot], titleOffsets[slot + 1] - titleOffsets[slot],
+                    StandardCharsets.UTF_8);
+        }
+
+        private void forEach(BiConsumer<Integer, String> action) {
+            for (var slot = 0; slot < productIds.length; slot++) {
+                action.accept(productIds[slot], title(slot));
+            }
+        }
+
+        // Candidates come from the longest token and are checked against the rest
+        private void search(String[] tokens, int limit, Map<Integer, String> shadowed, List<ProductSuggestionDTO> out) {
+            var seed = longestToken(tokens);
+            var seen = new HashSet<Integer>();
+            var candidates = 0;
+            var firstTerm = Arrays.binarySearch(terms, seed);
+
+            for (var term = firstTerm < 0 ? -firstTerm - 1 : firstTerm; term < terms.length && terms[term].startsWith(seed); term++) {
+                for (var posting = postingOffsets[term]; posting < postingOffsets[term + 1]; posting++) {
+                    if (out.size() >= limit || ++candidates > MAX_CANDIDATES) {
+                        return;
+                    }
+
+                    var slot = postings[posting];
+                    var productId = productIds[slot];
+
+                    if (!seen.add(slot) || shadowed.containsKey(productId)) {
+                        continue;
+                    }
+
+                    var title = title(slot);
+
+                    if (matches(title, tokens)) {
+                        out.add(suggestion(productId, title));
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class SnapshotBuilder {
+        private final int maxEntries;
+        private final Map<String, IntList> slotsByTerm = new HashMap<>();
+        private int[] productIds = new int[1024];
+        private int[] titleOffsets = new int[1025];
+        private byte[] titleBytes = new byte[32 * 1024];
+        private int size;
+        private int dropped;
+
+        private SnapshotBuilder(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        private void add(Integer productId, String title) {
+            if (size >= maxEntries) {
+                dropped++;
+                return;
+            }
+
+            var bytes = title.getBytes(StandardCharsets.UTF_8);
+            var offset = titleOffsets[size];
+
+            if (size + 1 == productIds.length) {
+                productIds = Arrays.copyOf(productIds, productIds.length * 2);
+                titleOffsets = Arrays.copyOf(titleOffsets, titleOffsets.length * 2);
+            }
+
+            if (offset + bytes.length > titleBytes.length) {
+                titleBytes = Arrays.copyOf(titleBytes, Math.max(titleBytes.length * 2, offset + bytes.length));
+            }
+
+            System.arraycopy(bytes, 0, titleBytes, offset, bytes.length);
+            productIds[size] = productId;
+            titleOffsets[size + 1] = offset + bytes.length;
+
+            for (var word : new LinkedHashSet<>(Arrays.asList(tokenize(title)))) {
+                slotsByTerm.computeIfAbsent(word, key -> new IntList()).add(size);
+            }
+
+            size++;
+        }
+
+        private Snapshot build() {
+            if (dropped > 0) {
+                log.warn("Dropped {} product titles over the suggestion index limit of {}", dropped, maxEntries);
+            }
+
+            var terms = slotsByTerm.keySet().toArray(String[]::new);
+            Arrays.sort(terms);
+
+            var postingOffsets = new int[terms.length + 1];
+
+            for (var term = 0; term < terms.length; term++) {
+                postingOffsets[term + 1] = postingOffsets[term] + slotsByTerm.get(terms[term]).size;
+            }
+
+            var postings = new int[postingOffsets[terms.length]];
+
+            for (var term = 0; term < terms.length; term++) {
+                var slots = slotsByTerm.get(terms[term]);
+                System.arraycopy(slots.values, 0, postings, postingOffsets[term], slots.size);
+            }
+
+            return new Snapshot(Arrays.copyOf(productIds, size), Arrays.copyOf(titleOffsets, size + 1),
+                    Arrays.copyOf(titleBytes, titleOffsets[size]), terms, postingOffsets, postings);
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            values[size++] = value;
+        }
+    }
+}
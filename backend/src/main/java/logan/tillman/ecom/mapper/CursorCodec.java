@@ -0,0 +1,31 @@
+package logan.tillman.ecom.mapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public final class CursorCodec {
+
+    private static final String PRODUCT_PREFIX = "p:";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Integer productId) {
+        var raw = PRODUCT_PREFIX + productId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Integer decode(String cursor) {
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+            if (!raw.startsWith(PRODUCT_PREFIX)) {
+                return null;
+            }
+
+            return Integer.valueOf(raw.substring(PRODUCT_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
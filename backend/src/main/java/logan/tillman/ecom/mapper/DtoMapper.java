@@ -1,44 +1,97 @@
 package logan.tillman.ecom.mapper;
 
+import logan.tillman.ecom.dao.CategorySummary;
+import logan.tillman.ecom.dao.ProductSummary;
 import logan.tillman.ecom.dto.CategoryDTO;
 import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.dto.VersionedProductDTO;
 import logan.tillman.ecom.entity.Category;
 import logan.tillman.ecom.entity.Product;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.ArrayList;
+import java.util.Collection;
 
 @Service
 public class DtoMapper {
+    // Cycles are broken by depth: associations are only mapped one level deep, so nested
+    // DTOs never carry their own associations and the entities are never modified
     public ProductDTO mapToProductDTO(Product product) {
-        var productDTO = ProductDTO.builder()
-                .productId(product.getProductId())
-                .title(product.getTitle())
-                .description(product.getDescription())
-                .releaseDate(product.getReleaseDate())
-                .build();
+        var productDTO = toShallowProductDTO(product);
+        var categories = product.getCategories();
 
-        if (product.getCategories() != null) {
-            product.getCategories().forEach(category -> category.setProducts(null));
-            var categories = product.getCategories().stream().map(this::mapToCategoryDTO).toList();
-            productDTO.setCategories(categories);
+        if (isLoaded(categories)) {
+            var categoryDTOs = new ArrayList<CategoryDTO>(categories.size());
+
+            for (var category : categories) {
+                categoryDTOs.add(toShallowCategoryDTO(category));
+            }
+
+            productDTO.setCategories(categoryDTOs);
         }
 
         return productDTO;
     }
 
-    public CategoryDTO mapToCategoryDTO(Category category) {
-        var categoryDTO = CategoryDTO.builder()
-                .categoryId(category.getCategoryId())
-                .name(category.getName())
+    // The product with the tag of the version it was mapped from, so a cached copy can be checked against the row
+    public VersionedProductDTO mapToVersionedProductDTO(Product product) {
+        return VersionedProductDTO.builder()
+                .product(mapToProductDTO(product))
+                .etag(VersionTags.productTag(product))
                 .build();
+    }
+
+    public CategoryDTO mapToCategoryDTO(Category category) {
+        var categoryDTO = toShallowCategoryDTO(category);
+        var products = category.getProducts();
+
+        if (isLoaded(products)) {
+            var productDTOs = new ArrayList<ProductDTO>(products.size());
 
-        if (category.getProducts() != null) {
-            category.getProducts().forEach(product -> product.setCategories(null));
-            var products = category.getProducts().stream().map(this::mapToProductDTO).toList();
-            categoryDTO.setProducts(products);
+            for (var product : products) {
+                productDTOs.add(toShallowProductDTO(product));
+            }
+
+            categoryDTO.setProducts(productDTOs);
         }
 
         return categoryDTO;
     }
+
+    public CategoryDTO mapToCategoryDTO(CategorySummary categorySummary) {
+        return CategoryDTO.builder()
+                .categoryId(categorySummary.getCategoryId())
+                .name(categorySummary.getName())
+                .build();
+    }
+
+    public ProductDTO mapToProductDTO(ProductSummary productSummary) {
+        return ProductDTO.builder()
+                .productId(productSummary.getProductId())
+                .title(productSummary.getTitle())
+                .description(productSummary.getDescription())
+                .releaseDate(productSummary.getReleaseDate())
+                .build();
+    }
+
+    private static ProductDTO toShallowProductDTO(Product product) {
+        return ProductDTO.builder()
+                .productId(product.getProductId())
+                .title(product.getTitle())
+                .description(product.getDescription())
+                .releaseDate(product.getReleaseDate())
+                .build();
+    }
+
+    private static CategoryDTO toShallowCategoryDTO(Category category) {
+        return CategoryDTO.builder()
+                .categoryId(category.getCategoryId())
+                .name(category.getName())
+                .build();
+    }
+
+    private static boolean isLoaded(Collection<?> association) {
+        return association != null && Hibernate.isInitialized(association);
+    }
 }
@@ -0,0 +1,64 @@
+package logan.tillman.ecom.mapper;
+
+import logan.tillman.ecom.entity.Category;
+import logan.tillman.ecom.entity.Product;
+
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+public final class VersionTags {
+
+    private static final String ANY = "*";
+
+    private VersionTags() {
+    }
+
+    // Strong entity tag: the parts joined and quoted, with timestamps as epoch millis and nulls as 0
+    public static String etag(Object... parts) {
+        return Arrays.stream(parts)
+                .map(part -> part instanceof OffsetDateTime timestamp ? timestamp.toInstant().toEpochMilli() : part)
+                .map(part -> part == null ? "0" : String.valueOf(part))
+                .collect(Collectors.joining("-", "\"", "\""));
+    }
+
+    // Latest of the timestamps in epoch millis, or -1 (no Last-Modified) when there are none
+    public static long lastModified(OffsetDateTime... timestamps) {
+        return Arrays.stream(timestamps)
+                .filter(Objects::nonNull)
+                .mapToLong(timestamp -> timestamp.toInstant().toEpochMilli())
+                .max()
+                .orElse(-1);
+    }
+
+    // If-Match uses strong comparison, so weak tags never match. A missing header matches anything
+    public static boolean matches(String ifMatch, String etag) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return true;
+        }
+
+        return Arrays.stream(ifMatch.split(","))
+                .map(String::trim)
+                .anyMatch(tag -> tag.equals(ANY) || tag.equals(etag));
+    }
+
+    // Same tag as ProductService.getProductVersion, computed from a loaded product and its categories
+    public static String productTag(Product product) {
+        var categoriesUpdatedAt = latest(product.getCategories()
+                .stream()
+                .map(Category::getUpdatedAt)
+                .toList());
+
+        return etag("p" + product.getProductId(), product.getVersion(), categoriesUpdatedAt);
+    }
+
+    public static OffsetDateTime latest(Collection<OffsetDateTime> timestamps) {
+        return timestamps.stream()
+                .filter(Objects::nonNull)
+                .max(Comparator.comparing(OffsetDateTime::toInstant))
+                .orElse(null);
+    }
+}
@@ -0,0 +1,113 @@
+package logan.tillman.ecom.reactive;
+
+import io.r2dbc.spi.Readable;
+import logan.tillman.ecom.dto.CategoryDTO;
+import logan.tillman.ecom.dto.ProductDTO;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Non-blocking reads against the same tables as the JPA entities. Products and their categories
+// come back as one row per pair, ordered by product id, and are folded into DTOs as they stream
+@Repository
+@Profile("reactive")
+public class ReactiveCatalogRepository {
+
+    private static final String PRODUCT_COLUMNS = "p.product_id, p.title, p.description, p.release_date, c.category_id, c.name ";
+    private static final String CATEGORY_JOINS = "left join category_product cp on cp.product_id = p.product_id " +
+            "left join category c on c.category_id = cp.category_id ";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveCatalogRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<ProductDTO> findProduct(Integer productId) {
+        return databaseClient.sql("select " + PRODUCT_COLUMNS + "from product p " + CATEGORY_JOINS +
+                        "where p.product_id = :productId order by c.category_id")
+                .bind("productId", productId)
+                .map(ReactiveCatalogRepository::toProductRow)
+                .all()
+                .collectList()
+                .filter(rows -> !rows.isEmpty())
+                .map(ReactiveCatalogRepository::toProductDTO);
+    }
+
+    // Keyset page like ProductService.getProducts; the limit is applied to products, not to joined rows
+    public Flux<ProductDTO> findProductsAfter(Integer productId, int limit) {
+        return databaseClient.sql("select " + PRODUCT_COLUMNS +
+                        "from (select * from product where product_id > :productId order by product_id limit :limit) p " +
+                        CATEGORY_JOINS + "order by p.product_id, c.category_id")
+                .bind("productId", productId)
+                .bind("limit", limit)
+                .map(ReactiveCatalogRepository::toProductRow)
+                .all()
+                .bufferUntilChanged(ProductRow::productId)
+                .map(ReactiveCatalogRepository::toProductDTO);
+    }
+
+    // Like the MVC endpoint without a page, every category streams back
+    public Flux<CategoryDTO> findAllCategories() {
+        return databaseClient.sql("select category_id, name from category order by category_id")
+                .map(ReactiveCatalogRepository::toCategoryDTO)
+                .all();
+    }
+
+    public Flux<CategoryDTO> findCategories(long offset, int limit) {
+        return databaseClient.sql("select category_id, name from category order by category_id limit :limit offset :offset")
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactiveCatalogRepository::toCategoryDTO)
+                .all();
+    }
+
+    private static CategoryDTO toCategoryDTO(Readable row) {
+        return CategoryDTO.builder()
+                .categoryId(row.get("category_id", Integer.class))
+                .name(row.get("name", String.class))
+                .build();
+    }
+
+    private static ProductRow toProductRow(Readable row) {
+        return new ProductRow(
+                row.get("product_id", Integer.class),
+                row.get("title", String.class),
+                row.get("description", String.class),
+                row.get("release_date", OffsetDateTime.class),
+                row.get("category_id", Integer.class),
+                row.get("name", String.class));
+    }
+
+    private static ProductDTO toProductDTO(List<ProductRow> rows) {
+        var first = rows.get(0);
+        var categories = new ArrayList<CategoryDTO>(rows.size());
+
+        for (var row : rows) {
+            if (row.categoryId() != null) {
+                categories.add(CategoryDTO.builder()
+                        .categoryId(row.categoryId())
+                        .name(row.categoryName())
+                        .build());
+            }
+        }
+
+        return ProductDTO.builder()
+                .productId(first.productId())
+                .title(first.title())
+                .description(first.description())
+                .releaseDate(first.releaseDate())
+                .categories(categories)
+                .build();
+    }
+
+    private record ProductRow(Integer productId, String title, String description, OffsetDateTime releaseDate,
+                              Integer categoryId, String categoryName) {
+    }
+}
@@ -0,0 +1,44 @@
+package logan.tillman.ecom.reactive;
+
+import logan.tillman.ecom.dto.CategoryDTO;
+import logan.tillman.ecom.service.CategoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@Profile("reactive")
+public class ReactiveCategoryController {
+
+    private final ReactiveCatalogRepository reactiveCatalogRepository;
+
+    public ReactiveCategoryController(ReactiveCatalogRepository reactiveCatalogRepository) {
+        this.reactiveCatalogRepository = reactiveCatalogRepository;
+    }
+
+    @GetMapping("/categories")
+    public Mono<ResponseEntity<List<CategoryDTO>>> getCategories(@RequestParam(required = false) Integer page,
+                                                                 @RequestParam(defaultValue = "20") Integer size) {
+        if (page != null && (page < 0 || size == null || size < 1 || size > CategoryService.MAX_PAGE_SIZE)) {
+            log.error("Unable to fetch category page {} with size {}", page, size);
+            return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+
+        var categories = page == null
+                ? reactiveCatalogRepository.findAllCategories()
+                : reactiveCatalogRepository.findCategories((long) page * size, size);
+
+        return categories.collectList()
+                .map(categoryDTOs -> categoryDTOs.isEmpty()
+                        ? new ResponseEntity<List<CategoryDTO>>(HttpStatus.NOT_FOUND)
+                        : new ResponseEntity<>(categoryDTOs, HttpStatus.OK));
+    }
+}
@@ -0,0 +1,70 @@
+package logan.tillman.ecom.reactive;
+
+import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.dto.ProductPageDTO;
+import logan.tillman.ecom.mapper.CursorCodec;
+import logan.tillman.ecom.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@Profile("reactive")
+public class ReactiveProductController {
+
+    // Listing filters the MVC endpoints serve but this profile has no queries for
+    private static final List<String> UNSUPPORTED_FILTERS = List.of("category", "ids", "releasedAfter", "releasedBefore");
+
+    private final ReactiveCatalogRepository reactiveCatalogRepository;
+
+    public ReactiveProductController(ReactiveCatalogRepository reactiveCatalogRepository) {
+        this.reactiveCatalogRepository = reactiveCatalogRepository;
+    }
+
+    @GetMapping("/products")
+    public Mono<ResponseEntity<ProductPageDTO>> getProducts(@RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "20") Integer size,
+                                                            @RequestParam MultiValueMap<String, String> params) {
+        // Rejected rather than ignored, so a filtered request never gets the unfiltered listing
+        if (UNSUPPORTED_FILTERS.stream().anyMatch(params::containsKey)) {
+            log.error("Unable to filter products by {} under the reactive profile", params.keySet());
+            return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+
+        var afterProductId = ProductService.resolveAfterProductId(cursor, size);
+
+        if (afterProductId == null) {
+            return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+
+        // Same contract as the MVC endpoint: one extra product tells whether there is a next page
+        return reactiveCatalogRepository.findProductsAfter(afterProductId, size + 1)
+                .collectList()
+                .map(products -> {
+                    var hasNextPage = products.size() > size;
+                    var pageProducts = hasNextPage ? products.subList(0, size) : products;
+
+                    return new ResponseEntity<>(ProductPageDTO.builder()
+                            .products(pageProducts)
+                            .nextCursor(hasNextPage ? CursorCodec.encode(pageProducts.get(size - 1).getProductId()) : null)
+                            .build(), HttpStatus.OK);
+                });
+    }
+
+    @GetMapping("/products/{productId}")
+    public Mono<ResponseEntity<ProductDTO>> getProduct(@PathVariable Integer productId) {
+        return reactiveCatalogRepository.findProduct(productId)
+                .map(product -> new ResponseEntity<>(product, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+}
@@ -1,34 +1,123 @@
 package logan.tillman.ecom.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.annotation.Timed;
+import logan.tillman.ecom.cache.CategoryResponseSnapshot;
+import logan.tillman.ecom.cache.ProductCache;
 import logan.tillman.ecom.dao.CategoryRepository;
+import logan.tillman.ecom.dao.CategoryVersion;
+import logan.tillman.ecom.dao.ProductRepository;
 import logan.tillman.ecom.dto.CategoryDTO;
+import logan.tillman.ecom.dto.CategoryProductPageDTO;
+import logan.tillman.ecom.dto.ResourceVersionDTO;
+import logan.tillman.ecom.dto.VersionedCategoryDTO;
 import logan.tillman.ecom.entity.Category;
+import logan.tillman.ecom.index.CategoryMembershipIndex;
 import logan.tillman.ecom.mapper.DtoMapper;
+import logan.tillman.ecom.mapper.VersionTags;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 
 @Slf4j
 @Service
+@Timed(value = "ecom.service", description = "Time spent in service methods")
 public class CategoryService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_NAME_LENGTH = 100;
+
+    private static final Sort CATEGORY_ORDER = Sort.by("categoryId");
+
     private final CategoryRepository categoryRepository;
     private final DtoMapper dtoMapper;
+    private final ProductCache productCache;
+    private final CategoryResponseSnapshot categoryResponseSnapshot;
+    private final ProductRepository productRepository;
+    private final CategoryMembershipIndex categoryMembershipIndex;
 
     public CategoryService(CategoryRepository categoryRepository,
-                           DtoMapper dtoMapper) {
+                           DtoMapper dtoMapper,
+                           ProductCache productCache,
+                           CategoryResponseSnapshot categoryResponseSnapshot,
+                           ProductRepository productRepository,
+                           CategoryMembershipIndex categoryMembershipIndex) {
         this.categoryRepository = categoryRepository;
         this.dtoMapper = dtoMapper;
+        this.productCache = productCache;
+        this.categoryResponseSnapshot = categoryResponseSnapshot;
+        this.productRepository = productRepository;
+        this.categoryMembershipIndex = categoryMembershipIndex;
+    }
+
+    // The unpaged listing, already serialized for responses that are sent as stored bytes
+    public CategoryResponseSnapshot.Snapshot getAllCategoriesSnapshot() {
+        return categoryResponseSnapshot.get();
+    }
+
+    public List<CategoryDTO> getCategories(Integer page, Integer size, boolean includeProducts) {
+        if (page == null || page < 0 || size == null || size < 1 || size > MAX_PAGE_SIZE) {
+            log.error("Unable to fetch category page {} with size {}", page, size);
+            return null;
+        }
+
+        var pageable = PageRequest.of(page, size, CATEGORY_ORDER);
+
+        if (includeProducts) {
+            // Page over ids first so the product fetch join is never paginated in memory
+            var categoryIds = categoryRepository.findCategoryIds(pageable);
+
+            if (categoryIds.isEmpty()) {
+                return List.of();
+            }
+
+            return categoryRepository.findWithProductsByCategoryIdIn(categoryIds, CATEGORY_ORDER)
+                    .stream()
+                    .map(dtoMapper::mapToCategoryDTO)
+                    .toList();
+        }
+
+        return categoryRepository.findAllProjectedBy(pageable).stream().map(dtoMapper::mapToCategoryDTO).toList();
+    }
+
+    // Validator for every category listing. Listings that include products also change with them
+    public ResourceVersionDTO getCategoriesVersion(boolean includeProducts) {
+        var categories = categoryRepository.findTableVersion();
+
+        if (!includeProducts) {
+            return ResourceVersionDTO.builder()
+                    .etag(VersionTags.etag("c", categories.getCount(), categories.getVersions()))
+                    .lastModified(VersionTags.lastModified(categories.getLastModified()))
+                    .build();
+        }
+
+        var products = productRepository.findTableVersion();
+
+        return ResourceVersionDTO.builder()
+                .etag(VersionTags.etag("cp", categories.getCount(), categories.getVersions(),
+                        products.getCount(), products.getVersions()))
+                .lastModified(VersionTags.lastModified(categories.getLastModified(), products.getLastModified()))
+                .build();
     }
 
-    public List<CategoryDTO> getAllCategories() {
-        var categories = categoryRepository.findAll();
-        return categories.stream().map(dtoMapper::mapToCategoryDTO).toList();
+    public ResourceVersionDTO getCategoryVersion(Integer categoryId) {
+        return categoryRepository.findVersionByCategoryId(categoryId)
+                .map(version -> ResourceVersionDTO.builder()
+                        .etag(categoryTag(categoryId, version.getVersion(), version))
+                        .lastModified(VersionTags.lastModified(version.getUpdatedAt(), version.getProductsUpdatedAt()))
+                        .build())
+                .orElse(null);
     }
 
     public CategoryDTO getCategory(Integer categoryId) {
-        var category = categoryRepository.findById(categoryId);
+        var category = categoryRepository.findWithProductsByCategoryId(categoryId);
 
         if (category.isPresent()) {
             return dtoMapper.mapToCategoryDTO(category.get());
@@ -38,6 +127,44 @@ public class CategoryService {
         }
     }
 
+    // Membership, counts and intersections come from the in-memory bitmaps; only the products on
+    // the requested page are read, from the product table
+    public CategoryProductPageDTO getCategoryProducts(Integer categoryId, List<Integer> alsoInCategoryIds,
+                                                      Integer page, Integer size) {
+        if (page == null || page < 0 || size == null || size < 1 || size > MAX_PAGE_SIZE) {
+            log.error("Unable to fetch product page {} with size {} for category {}", page, size, categoryId);
+            return null;
+        }
+
+        // The path category counts towards the same limit as the product category filter
+        if (alsoInCategoryIds != null && (alsoInCategoryIds.size() >= ProductService.MAX_FILTER_CATEGORIES
+                || alsoInCategoryIds.stream().anyMatch(Objects::isNull))) {
+            log.error("Unable to filter products of category {} by categories {}", categoryId, alsoInCategoryIds);
+            return null;
+        }
+
+        var categoryIds = new LinkedHashSet<Integer>();
+        categoryIds.add(categoryId);
+
+        if (alsoInCategoryIds != null) {
+            categoryIds.addAll(alsoInCategoryIds);
+        }
+
+        var productIds = categoryMembershipIndex.members(categoryIds, true);
+
+        return CategoryProductPageDTO.builder()
+                .products(MembershipPages.fetch(productRepository, dtoMapper, productIds, page, size))
+                .page(page)
+                .size(size)
+                .total(productIds.getCardinality())
+                .build();
+    }
+
+    // Categories with products are known from the membership index, so only an empty one costs a query
+    public boolean categoryExists(Integer categoryId) {
+        return categoryMembershipIndex.count(categoryId) > 0 || categoryRepository.existsById(categoryId);
+    }
+
     public CategoryDTO createCategory(CategoryDTO categoryDTO) {
         if (categoryDTO.getName() == null || categoryDTO.getName().isEmpty()) {
             log.error("Unable to create category with empty name");
@@ -48,29 +175,97 @@ public class CategoryService {
                 .name(categoryDTO.getName())
                 .build();
 
-        return dtoMapper.mapToCategoryDTO(categoryRepository.saveAndFlush(category));
+        var createdCategory = dtoMapper.mapToCategoryDTO(categoryRepository.saveAndFlush(category));
+        categoryResponseSnapshot.invalidate();
+
+        return createdCategory;
     }
 
-    public CategoryDTO updateCategory(Integer categoryId, CategoryDTO categoryDTO) {
+    // Renames the category row alone; its products are only counted, by the version projection
+    @Transactional(rollbackFor = Exception.class)
+    public VersionedCategoryDTO updateCategory(Integer categoryId, CategoryDTO categoryDTO, String ifMatch) {
         if (categoryDTO.getName() == null || categoryDTO.getName().isEmpty()) {
             log.error("Unable to update category to have empty name");
             return null;
         }
 
         var optionalCategory = categoryRepository.findById(categoryId);
+        var optionalVersion = categoryRepository.findVersionByCategoryId(categoryId);
 
-        if (optionalCategory.isPresent()) {
-            log.info("Updating category with id {}", categoryId);
+        if (optionalCategory.isPresent() && optionalVersion.isPresent()) {
             var category = optionalCategory.get();
+            var version = optionalVersion.get();
+
+            if (!VersionTags.matches(ifMatch, categoryTag(categoryId, version.getVersion(), version))) {
+                log.info("Category with id {} no longer matches {}", categoryId, ifMatch);
+                throw new ObjectOptimisticLockingFailureException(Category.class, categoryId);
+            }
+
+            log.info("Updating category with id {}", categoryId);
 
             category.setName(categoryDTO.getName());
 
             categoryRepository.saveAndFlush(category);
+            productCache.evictByCategory(categoryId);
+            categoryResponseSnapshot.invalidate();
 
-            return dtoMapper.mapToCategoryDTO(category);
+            // The flush bumped the row version; the products are untouched, so their part of the tag carries over
+            return VersionedCategoryDTO.builder()
+                    .category(dtoMapper.mapToCategoryDTO(category))
+                    .etag(categoryTag(categoryId, category.getVersion(), version))
+                    .build();
         } else {
             log.info("Unable to find category with id {}", categoryId);
             return null;
         }
     }
+
+    // JSON Merge Patch of the category row alone; its products are never loaded
+    @Transactional(rollbackFor = Exception.class)
+    public ResourceVersionDTO patchCategory(Integer categoryId, JsonNode patch, String ifMatch) {
+        if (patch == null || !patch.isObject()) {
+            log.error("Unable to patch category {} with a non-object patch", categoryId);
+            return null;
+        }
+
+        var name = patch.get("name");
+
+        if (name != null && (!name.isTextual() || name.asText().isEmpty())) {
+            log.error("Unable to patch category {} to have empty name", categoryId);
+            return null;
+        }
+
+        if (name != null && name.asText().length() > MAX_NAME_LENGTH) {
+            log.error("Unable to patch category {} to have a name longer than {} characters", categoryId, MAX_NAME_LENGTH);
+            return null;
+        }
+
+        var optionalCategory = categoryRepository.findById(categoryId);
+
+        if (optionalCategory.isEmpty()) {
+            log.info("Unable to find category with id {}", categoryId);
+            return null;
+        }
+
+        if (ifMatch != null && !VersionTags.matches(ifMatch, getCategoryVersion(categoryId).getEtag())) {
+            log.info("Category with id {} no longer matches {}", categoryId, ifMatch);
+            throw new ObjectOptimisticLockingFailureException(Category.class, categoryId);
+        }
+
+        if (name != null) {
+            log.info("Patching category with id {}", categoryId);
+            var category = optionalCategory.get();
+            category.setName(name.asText());
+
+            categoryRepository.saveAndFlush(category);
+            productCache.evictByCategory(categoryId);
+            categoryResponseSnapshot.invalidate();
+        }
+
+        return getCategoryVersion(categoryId);
+    }
+
+    private static String categoryTag(Integer categoryId, Long version, CategoryVersion products) {
+        return VersionTags.etag("c" + categoryId, version, products.getProductCount(), products.getProductVersions());
+    }
 }
@@ -0,0 +1,35 @@
+package logan.tillman.ecom.service;
+
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.dao.ProductSummary;
+import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.index.CategoryMembershipIndex;
+import logan.tillman.ecom.mapper.DtoMapper;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+final class MembershipPages {
+
+    private MembershipPages() {
+    }
+
+    // One page of the products in a category membership bitmap, in ascending id order. The page is found
+    // by rank in the bitmap, so the only query is for its summaries, and none is run past the last page
+    static List<ProductDTO> fetch(ProductRepository productRepository, DtoMapper dtoMapper,
+                                  RoaringBitmap productIds, int page, int size) {
+        var pageIds = CategoryMembershipIndex.page(productIds, (long) page * size, size);
+
+        if (pageIds.length == 0) {
+            return List.of();
+        }
+
+        return productRepository.findByProductIdIn(Arrays.stream(pageIds).boxed().toList())
+                .stream()
+                .sorted(Comparator.comparing(ProductSummary::getProductId))
+                .map(dtoMapper::mapToProductDTO)
+                .toList();
+    }
+}
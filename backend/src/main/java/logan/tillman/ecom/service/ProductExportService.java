@@ -0,0 +1,122 @@
+package logan.tillman.ecom.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import logan.tillman.ecom.dao.ProductExportRow;
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.dto.ProductExportDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class ProductExportService {
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    private static final String CSV_HEADER = "productId,title,description,releaseDate,categoryIds";
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+
+    public ProductExportService(ProductRepository productRepository, ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return NDJSON.equals(format) || CSV.equals(format);
+    }
+
+    // Rows arrive ordered by product id, so each product is written as soon as its last
+    // category row has been read and only one product is held in memory at a time
+    @Transactional(readOnly = true)
+    public int exportProducts(String format, OutputStream outputStream) throws IOException {
+        var writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        var csv = CSV.equals(format);
+        var exported = 0;
+
+        if (csv) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        try (var rows = productRepository.streamExportRows()) {
+            var iterator = rows.iterator();
+            ProductExportDTO current = null;
+
+            while (iterator.hasNext()) {
+                var row = iterator.next();
+
+                if (current == null || !current.getProductId().equals(row.getProductId())) {
+                    if (current != null) {
+                        writeProduct(writer, current, csv);
+                        exported++;
+                    }
+
+                    current = toExportDTO(row);
+                }
+
+                if (row.getCategoryId() != null) {
+                    current.getCategoryIds().add(row.getCategoryId());
+                }
+            }
+
+            if (current != null) {
+                writeProduct(writer, current, csv);
+                exported++;
+            }
+        }
+
+        writer.flush();
+        log.info("Exported {} products as {}", exported, format);
+        return exported;
+    }
+
+    private void writeProduct(Writer writer, ProductExportDTO product, boolean csv) throws IOException {
+        if (csv) {
+            writer.write(String.join(",",
+                    String.valueOf(product.getProductId()),
+                    escapeCsv(product.getTitle()),
+                    escapeCsv(product.getDescription()),
+                    product.getReleaseDate() == null ? "" : product.getReleaseDate().toString(),
+                    product.getCategoryIds().stream().map(String::valueOf).collect(Collectors.joining(";"))));
+        } else {
+            writer.write(objectMapper.writeValueAsString(product));
+        }
+
+        writer.write('\n');
+    }
+
+    private static ProductExportDTO toExportDTO(ProductExportRow row) {
+        return ProductExportDTO.builder()
+                .productId(row.getProductId())
+                .title(row.getTitle())
+                .description(row.getDescription())
+                .releaseDate(row.getReleaseDate())
+                .categoryIds(new ArrayList<>())
+                .build();
+    }
+
+    private static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,182 @@
+package logan.tillman.ecom.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import logan.tillman.ecom.dto.ProductBatchResultDTO;
+import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.dto.ProductImportSummaryDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class ProductImportService {
+
+    public static final int MAX_REPORTED_FAILURES = 100;
+
+    private final ProductService productService;
+    private final ObjectReader productReader;
+    private final int chunkSize;
+    private final int maxLineLength;
+
+    public ProductImportService(ProductService productService,
+                                ObjectMapper objectMapper,
+                                @Value("${ecom.import.chunk-size:500}") int chunkSize,
+                                @Value("${ecom.import.max-line-length:16384}") int maxLineLength) {
+        this.productService = productService;
+        this.productReader = objectMapper.readerFor(ProductDTO.class);
+        this.chunkSize = Math.max(1, Math.min(chunkSize, ProductService.MAX_BATCH_SIZE));
+        this.maxLineLength = Math.max(1, maxLineLength);
+    }
+
+    // Lines are read only as fast as chunks are persisted, so a slow database pushes back on the client
+    // through the request stream. Lines are capped at max-line-length, so at most one chunk of bounded
+    // lines is held in memory
+    public ProductImportSummaryDTO importProducts(InputStream inputStream) {
+        var summary = new ImportProgress();
+        var chunk = new ArrayList<ProductDTO>(chunkSize);
+        var chunkLines = new ArrayList<Integer>(chunkSize);
+
+        try (var reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            var buffer = new StringBuilder();
+            var lineNumber = 0;
+
+            while (readLine(reader, buffer)) {
+                lineNumber++;
+
+                if (buffer.length() > maxLineLength) {
+                    summary.recordFailure(lineNumber, "Line is longer than " + maxLineLength + " characters");
+                    continue;
+                }
+
+                var line = buffer.toString();
+
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    chunk.add(productReader.readValue(line));
+                    chunkLines.add(lineNumber);
+                } catch (JsonProcessingException e) {
+                    summary.recordFailure(lineNumber, "Malformed product JSON");
+                }
+
+                // Each chunk gets new lists, since the batch may still hold on to the ones it was given
+                if (chunk.size() == chunkSize) {
+                    persistChunk(chunk, chunkLines, summary);
+                    chunk = new ArrayList<>(chunkSize);
+                    chunkLines = new ArrayList<>(chunkSize);
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                persistChunk(chunk, chunkLines, summary);
+            }
+        } catch (IOException e) {
+            log.error("Unable to read product import after {} products", summary.processed, e);
+            return null;
+        }
+
+        log.info("Imported {} of {} products in {} chunks", summary.succeeded, summary.processed, summary.chunks);
+        return summary.toDTO();
+    }
+
+    // Reads up to the next line feed, keeping one character past maxLineLength so an overlong line can be
+    // told apart without buffering the rest of it. Returns false once the stream is exhausted
+    private boolean readLine(BufferedReader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        var read = false;
+        int character;
+
+        while ((character = reader.read()) != -1) {
+            read = true;
+
+            if (character == '\n') {
+                break;
+            }
+
+            if (line.length() <= maxLineLength) {
+                line.append((char) character);
+            }
+        }
+
+        if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+
+        return read;
+    }
+
+    // Each chunk commits in its own transaction, so the persistence context never outgrows a chunk. A chunk
+    // the database rejects is rolled back on its own; its lines are reported and the import carries on
+    private void persistChunk(List<ProductDTO> chunk, List<Integer> chunkLines, ImportProgress summary) {
+        List<ProductBatchResultDTO> results;
+        summary.chunks++;
+
+        try {
+            results = productService.createProducts(chunk);
+        } catch (DataAccessException e) {
+            log.error("Unable to persist chunk of {} products starting at line {}", chunk.size(), chunkLines.get(0), e);
+            chunkLines.forEach(lineNumber -> summary.recordFailure(lineNumber, "Chunk could not be saved"));
+            return;
+        }
+
+        for (var i = 0; i < chunk.size(); i++) {
+            var result = results == null ? null : results.get(i);
+
+            if (result != null && Boolean.TRUE.equals(result.getSuccess())) {
+                summary.recordSuccess();
+            } else {
+                summary.recordFailure(chunkLines.get(i), result == null ? "Chunk was rejected" : result.getError());
+            }
+        }
+    }
+
+    private static class ImportProgress {
+        private int processed;
+        private int succeeded;
+        private int failed;
+        private int chunks;
+        private final List<ProductBatchResultDTO> failures = new ArrayList<>();
+
+        private void recordSuccess() {
+            processed++;
+            succeeded++;
+        }
+
+        private void recordFailure(int lineNumber, String error) {
+            processed++;
+            failed++;
+
+            if (failures.size() < MAX_REPORTED_FAILURES) {
+                failures.add(ProductBatchResultDTO.builder()
+                        .index(lineNumber)
+                        .success(false)
+                        .error(error)
+                        .build());
+            }
+        }
+
+        private ProductImportSummaryDTO toDTO() {
+            return ProductImportSummaryDTO.builder()
+                    .processed(processed)
+                    .succeeded(succeeded)
+                    .failed(failed)
+                    .chunks(chunks)
+                    .failures(failures)
+                    .build();
+        }
+    }
+}
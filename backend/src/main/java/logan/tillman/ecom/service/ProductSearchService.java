@@ -0,0 +1,73 @@
+package logan.tillman.ecom.service;
+
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.dao.ProductSummary;
+import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.mapper.DtoMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class ProductSearchService {
+
+    public static final int MAX_QUERY_LENGTH = 200;
+
+    private final ProductRepository productRepository;
+    private final DtoMapper dtoMapper;
+    private final boolean fullText;
+
+    public ProductSearchService(ProductRepository productRepository,
+                                DtoMapper dtoMapper,
+                                @Value("${ecom.search.full-text:true}") boolean fullText) {
+        this.productRepository = productRepository;
+        this.dtoMapper = dtoMapper;
+        this.fullText = fullText;
+    }
+
+    public List<ProductDTO> searchProducts(String query, Integer page, Integer size) {
+        if (query == null || query.isBlank() || query.length() > MAX_QUERY_LENGTH) {
+            log.error("Unable to search products for query {}", query);
+            return null;
+        }
+
+        if (page == null || page < 0 || size == null || size < 1 || size > ProductService.MAX_PAGE_SIZE) {
+            log.error("Unable to fetch search page {} with size {}", page, size);
+            return null;
+        }
+
+        var pageable = PageRequest.of(page, size);
+        var productIds = fullText
+                ? productRepository.searchProductIds(query.strip(), pageable.getPageSize(), pageable.getOffset())
+                : productRepository.searchProductIdsByText(escapeLike(query.strip()), pageable);
+
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+
+        // The ids carry the rank order, so the summaries are put back in that order
+        var summariesById = productRepository.findByProductIdIn(productIds)
+                .stream()
+                .collect(Collectors.toMap(ProductSummary::getProductId, Function.identity()));
+
+        return productIds.stream()
+                .map(summariesById::get)
+                .filter(Objects::nonNull)
+                .map(dtoMapper::mapToProductDTO)
+                .toList();
+    }
+
+    // Escapes the LIKE wildcards with the '!' escape character declared by searchProductIdsByText
+    static String escapeLike(String query) {
+        return query.replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+    }
+}
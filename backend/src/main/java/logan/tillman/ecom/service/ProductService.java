@@ -1,31 +1,90 @@
 package logan.tillman.ecom.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.annotation.Timed;
+import logan.tillman.ecom.cache.ProductBatchLoader;
+import logan.tillman.ecom.cache.ProductCache;
 import logan.tillman.ecom.dao.CategoryRepository;
 import logan.tillman.ecom.dao.ProductRepository;
 import logan.tillman.ecom.dto.CategoryDTO;
+import logan.tillman.ecom.dto.CategoryFacetDTO;
+import logan.tillman.ecom.dto.ProductBatchResultDTO;
 import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.dto.ProductFacetPageDTO;
+import logan.tillman.ecom.dto.ProductPageDTO;
+import logan.tillman.ecom.dto.ProductReleasePageDTO;
+import logan.tillman.ecom.dto.ProductSuggestionDTO;
+import logan.tillman.ecom.dto.ResourceVersionDTO;
+import logan.tillman.ecom.dto.VersionedProductDTO;
+import logan.tillman.ecom.entity.Category;
 import logan.tillman.ecom.entity.Product;
+import logan.tillman.ecom.index.CategoryMembershipIndex;
+import logan.tillman.ecom.index.ProductTitleIndex;
+import logan.tillman.ecom.mapper.CursorCodec;
 import logan.tillman.ecom.mapper.DtoMapper;
+import logan.tillman.ecom.mapper.VersionTags;
+import logan.tillman.ecom.transaction.OptimisticRetry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
+@Timed(value = "ecom.service", description = "Time spent in service methods")
 public class ProductService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BATCH_SIZE = 1000;
+    public static final int MAX_SUGGESTIONS = 20;
+    public static final int MAX_FILTER_CATEGORIES = 50;
+    public static final int MAX_TITLE_LENGTH = 100;
+    public static final int MAX_DESCRIPTION_LENGTH = 255;
+
+    private static final Sort PRODUCT_ORDER = Sort.by("productId");
+    private static final Sort RELEASE_ORDER = Sort.by(Sort.Order.desc("releaseDate"), Sort.Order.desc("productId"));
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final DtoMapper dtoMapper;
+    private final ProductCache productCache;
+    private final ProductBatchLoader productBatchLoader;
+    private final ProductTitleIndex productTitleIndex;
+    private final CategoryMembershipIndex categoryMembershipIndex;
+    private final OptimisticRetry optimisticRetry;
 
     public ProductService(ProductRepository productRepository,
                           CategoryRepository categoryRepository,
-                          DtoMapper dtoMapper) {
+                          DtoMapper dtoMapper,
+                          ProductCache productCache,
+                          ProductBatchLoader productBatchLoader,
+                          ProductTitleIndex productTitleIndex,
+                          CategoryMembershipIndex categoryMembershipIndex,
+                          OptimisticRetry optimisticRetry) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.dtoMapper = dtoMapper;
+        this.productCache = productCache;
+        this.productBatchLoader = productBatchLoader;
+        this.productTitleIndex = productTitleIndex;
+        this.categoryMembershipIndex = categoryMembershipIndex;
+        this.optimisticRetry = optimisticRetry;
     }
 
     public ProductDTO createProduct(ProductDTO productDTO) {
@@ -45,53 +104,570 @@ public class ProductService {
                 .title(productDTO.getTitle())
                 .description(productDTO.getDescription())
                 .releaseDate(productDTO.getReleaseDate())
-                .categories(categories)
+                .categories(new LinkedHashSet<>(categories))
                 .build();
-        return dtoMapper.mapToProductDTO(productRepository.saveAndFlush(product));
+
+        var savedProduct = productRepository.saveAndFlush(product);
+        var createdProduct = dtoMapper.mapToVersionedProductDTO(savedProduct);
+        productCache.put(createdProduct);
+        indexProduct(savedProduct);
+
+        return createdProduct.getProduct();
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    public List<ProductBatchResultDTO> createProducts(List<ProductDTO> productDTOs) {
+        if (productDTOs == null || productDTOs.isEmpty() || productDTOs.size() > MAX_BATCH_SIZE) {
+            log.error("Unable to create a batch of {} products", productDTOs == null ? 0 : productDTOs.size());
+            return null;
+        }
+
+        var categoriesById = findCategoriesById(productDTOs);
+        var results = new ArrayList<ProductBatchResultDTO>(Collections.nCopies(productDTOs.size(), null));
+        var products = new ArrayList<Product>(productDTOs.size());
+        var productIndexes = new ArrayList<Integer>(productDTOs.size());
+
+        for (var index = 0; index < productDTOs.size(); index++) {
+            var productDTO = productDTOs.get(index);
+            var error = validateBatchItem(productDTO, categoriesById, false);
+
+            if (error != null) {
+                results.set(index, batchFailure(index, null, error));
+                continue;
+            }
+
+            products.add(Product.builder()
+                    .title(productDTO.getTitle())
+                    .description(productDTO.getDescription())
+                    .releaseDate(productDTO.getReleaseDate())
+                    .categories(resolveCategories(productDTO, categoriesById))
+                    .build());
+            productIndexes.add(index);
+        }
+
+        // Sequence ids are allocated in blocks, so Hibernate can send the inserts and the
+        // category_product rows as JDBC batches instead of one round trip per row
+        var createdProducts = productRepository.saveAllAndFlush(products);
+
+        for (var i = 0; i < createdProducts.size(); i++) {
+            var index = productIndexes.get(i);
+            var createdProduct = createdProducts.get(i);
+            results.set(index, batchSuccess(index, createdProduct.getProductId()));
+            indexProduct(createdProduct);
+        }
+
+        log.info("Created {} of {} products in batch", createdProducts.size(), productDTOs.size());
+        return results;
+    }
+
+    // Batch edits carry no version, so a concurrent edit to one of the products is resolved by
+    // rereading and reapplying the whole batch rather than failing it
+    public List<ProductBatchResultDTO> updateProducts(List<ProductDTO> productDTOs) {
+        if (productDTOs == null || productDTOs.isEmpty() || productDTOs.size() > MAX_BATCH_SIZE) {
+            log.error("Unable to update a batch of {} products", productDTOs == null ? 0 : productDTOs.size());
+            return null;
+        }
+
+        return optimisticRetry.execute(() -> applyUpdates(productDTOs));
+    }
+
+    private List<ProductBatchResultDTO> applyUpdates(List<ProductDTO> productDTOs) {
+        var productIds = productDTOs.stream()
+                .filter(Objects::nonNull)
+                .map(ProductDTO::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        var productsById = productRepository.findWithCategoriesByProductIdIn(productIds, PRODUCT_ORDER)
+                .stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        var categoriesById = findCategoriesById(productDTOs);
+        var results = new ArrayList<ProductBatchResultDTO>(productDTOs.size());
+
+        for (var index = 0; index < productDTOs.size(); index++) {
+            var productDTO = productDTOs.get(index);
+            var error = validateBatchItem(productDTO, categoriesById, true);
+            var product = productDTO == null ? null : productsById.get(productDTO.getProductId());
+
+            if (error == null && product == null) {
+                error = "Unknown product " + productDTO.getProductId();
+            }
+
+            if (error != null) {
+                results.add(batchFailure(index, productDTO == null ? null : productDTO.getProductId(), error));
+                continue;
+            }
+
+            product.setTitle(productDTO.getTitle());
+            product.setDescription(productDTO.getDescription());
+            product.setReleaseDate(productDTO.getReleaseDate());
+            updateCategories(product, productDTO.getCategories()
+                    .stream()
+                    .map(CategoryDTO::getCategoryId)
+                    .collect(Collectors.toSet()), categoriesById);
+
+            results.add(batchSuccess(index, product.getProductId()));
+            indexProduct(product);
+        }
+
+        // The loaded products are managed, so flushing sends the dirty rows as batched updates
+        productRepository.flush();
+        productsById.keySet().forEach(productCache::evict);
+
+        return results;
     }
 
+    // Cache misses for different products arriving together are coalesced into one query
     public ProductDTO getProduct(Integer productId) {
-        log.info("Finding product with id {}", productId);
-        var product = productRepository.findById(productId);
+        var product = productCache.get(productId, productBatchLoader::load);
+        return product == null ? null : product.getProduct();
+    }
 
-        if (product.isPresent()) {
-            return dtoMapper.mapToProductDTO(product.get());
-        } else {
-            log.info("Unable to find product with id {}", productId);
+    // A cached copy whose tag is not the current one, from an expiring entry or a write on another
+    // instance, is dropped and read again. The result carries the tag of the copy actually returned
+    public VersionedProductDTO getProduct(Integer productId, String etag) {
+        var product = productCache.get(productId, productBatchLoader::load);
+
+        if (product != null && !product.getEtag().equals(etag)) {
+            log.info("Cached product with id {} is not at {}, reloading", productId, etag);
+            productCache.evict(productId);
+            product = productCache.get(productId, productBatchLoader::load);
+        }
+
+        return product;
+    }
+
+    // Cached products are served from memory and the rest are read with one query. Products come back in
+    // the order requested, once each, and ids that match no product are left out
+    public List<ProductDTO> getProductsById(List<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty() || productIds.size() > MAX_PAGE_SIZE
+                || productIds.stream().anyMatch(Objects::isNull)) {
+            log.error("Unable to look up products {}", productIds);
             return null;
         }
+
+        var productsById = productCache.getAll(productIds, productBatchLoader::loadAll);
+
+        return productIds.stream()
+                .distinct()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .map(VersionedProductDTO::getProduct)
+                .toList();
     }
 
+    // Answers conditional GETs from the version columns alone, without loading or mapping the product
+    public ResourceVersionDTO getProductVersion(Integer productId) {
+        return productRepository.findVersionByProductId(productId)
+                .map(version -> ResourceVersionDTO.builder()
+                        .etag(VersionTags.etag("p" + productId, version.getVersion(), version.getCategoriesUpdatedAt()))
+                        .lastModified(VersionTags.lastModified(version.getUpdatedAt(), version.getCategoriesUpdatedAt()))
+                        .build())
+                .orElse(null);
+    }
+
+    // Shared with the reactive endpoint: the product id a keyset page starts after, or null if the
+    // size or cursor is invalid
+    public static Integer resolveAfterProductId(String cursor, Integer size) {
+        if (size == null || size < 1 || size > MAX_PAGE_SIZE) {
+            log.error("Unable to fetch product page with size {}", size);
+            return null;
+        }
+
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+
+        var afterProductId = CursorCodec.decode(cursor);
+
+        if (afterProductId == null) {
+            log.error("Unable to decode product cursor {}", cursor);
+        }
+
+        return afterProductId;
+    }
+
+    public ProductPageDTO getProducts(String cursor, Integer size) {
+        var afterProductId = resolveAfterProductId(cursor, size);
+
+        if (afterProductId == null) {
+            return null;
+        }
+
+        // Fetch one extra id to know whether another page exists without a count query
+        var productIds = productRepository.findProductIdsAfter(afterProductId, PageRequest.of(0, size + 1));
+        var hasNextPage = productIds.size() > size;
+        var pageIds = hasNextPage ? productIds.subList(0, size) : productIds;
+
+        var products = pageIds.isEmpty()
+                ? List.<Product>of()
+                : productRepository.findWithCategoriesByProductIdIn(pageIds, PRODUCT_ORDER);
+
+        var nextCursor = hasNextPage
+                ? CursorCodec.encode(pageIds.get(pageIds.size() - 1))
+                : null;
+
+        return ProductPageDTO.builder()
+                .products(products.stream().map(dtoMapper::mapToProductDTO).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // Filtering, paging and facet counts all run against the category membership bitmaps, so the
+    // only query is for the summaries of the products on the page
+    public ProductFacetPageDTO getProductsInCategories(List<Integer> categoryIds, String mode, Integer page, Integer size) {
+        if (categoryIds == null || categoryIds.isEmpty() || categoryIds.size() > MAX_FILTER_CATEGORIES
+                || categoryIds.stream().anyMatch(Objects::isNull) || !("all".equals(mode) || "any".equals(mode))) {
+            log.error("Unable to filter products by categories {} with mode {}", categoryIds, mode);
+            return null;
+        }
+
+        if (page == null || page < 0 || size == null || size < 1 || size > MAX_PAGE_SIZE) {
+            log.error("Unable to fetch filtered product page {} with size {}", page, size);
+            return null;
+        }
+
+        var productIds = categoryMembershipIndex.members(Set.copyOf(categoryIds), "all".equals(mode));
+        var facets = categoryMembershipIndex.facetCounts(productIds)
+                .entrySet()
+                .stream()
+                .map(facet -> CategoryFacetDTO.builder()
+                        .categoryId(facet.getKey())
+                        .count(facet.getValue())
+                        .build())
+                .toList();
+
+        return ProductFacetPageDTO.builder()
+                .products(MembershipPages.fetch(productRepository, dtoMapper, productIds, page, size))
+                .page(page)
+                .size(size)
+                .total(productIds.getCardinality())
+                .facets(facets)
+                .build();
+    }
+
+    public List<ProductSuggestionDTO> suggestProducts(String prefix, Integer limit) {
+        if (prefix == null || prefix.isBlank() || prefix.length() > 100 || limit == null || limit < 1 || limit > MAX_SUGGESTIONS) {
+            log.error("Unable to suggest {} products for prefix {}", limit, prefix);
+            return null;
+        }
+
+        return productTitleIndex.suggest(prefix, limit);
+    }
+
+    // No count query is run, so the page carries no total and stays a single range scan
+    public ProductReleasePageDTO getProductsReleasedBetween(OffsetDateTime releasedAfter, OffsetDateTime releasedBefore,
+                                                            Integer page, Integer size) {
+        if (releasedAfter == null || releasedBefore == null || releasedAfter.isAfter(releasedBefore)) {
+            log.error("Unable to fetch products released between {} and {}", releasedAfter, releasedBefore);
+            return null;
+        }
+
+        if (page == null || page < 0 || size == null || size < 1 || size > MAX_PAGE_SIZE) {
+            log.error("Unable to fetch released product page {} with size {}", page, size);
+            return null;
+        }
+
+        var pageable = PageRequest.of(page, size, RELEASE_ORDER);
+
+        var products = productRepository.findByReleaseDateBetween(releasedAfter, releasedBefore, pageable)
+                .stream()
+                .map(dtoMapper::mapToProductDTO)
+                .toList();
+
+        return ProductReleasePageDTO.builder()
+                .products(products)
+                .page(page)
+                .size(size)
+                .build();
+    }
+
+    // The version loaded here is checked again by the update itself, so a write that commits in
+    // between also fails with an OptimisticLockingFailureException instead of being overwritten.
+    // The returned tag comes from the saved entity, so it always describes the returned product
     @Transactional(rollbackFor = Exception.class)
-    public ProductDTO updateProduct(Integer productId, ProductDTO updatedProduct) {
+    public VersionedProductDTO updateProduct(Integer productId, ProductDTO updatedProduct, String ifMatch) {
         if (updatedProduct.getTitle() == null || updatedProduct.getTitle().isEmpty()) {
             log.error("Unable to update product to have empty title");
             return null;
         }
 
-        var optionalProduct = productRepository.findById(productId);
+        // A full replacement has to list the categories; PATCH leaves them out instead
+        if (updatedProduct.getCategories() == null) {
+            log.error("Unable to update product {} without its categories", productId);
+            return null;
+        }
+
+        var optionalProduct = productRepository.findWithCategoriesByProductId(productId);
 
         if (optionalProduct.isPresent()) {
-            log.info("Updating product with id {}", productId);
             var product = optionalProduct.get();
 
+            if (!VersionTags.matches(ifMatch, VersionTags.productTag(product))) {
+                log.info("Product with id {} no longer matches {}", productId, ifMatch);
+                throw new ObjectOptimisticLockingFailureException(Product.class, productId);
+            }
+
+            log.info("Updating product with id {}", productId);
+
             product.setTitle(updatedProduct.getTitle());
             product.setDescription(updatedProduct.getDescription());
             product.setReleaseDate(updatedProduct.getReleaseDate());
 
-            var categoryToUpdateIds = updatedProduct.getCategories()
+            updateCategories(product, updatedProduct.getCategories()
                     .stream()
                     .map(CategoryDTO::getCategoryId)
-                    .collect(Collectors.toSet());
+                    .collect(Collectors.toSet()), Map.of());
 
-            var categories = categoryRepository.findAllById(categoryToUpdateIds);
-            product.setCategories(categories);
             productRepository.saveAndFlush(product);
 
-            return dtoMapper.mapToProductDTO(product);
+            var productDTO = dtoMapper.mapToVersionedProductDTO(product);
+            productCache.put(productDTO);
+            indexProduct(product);
+
+            return productDTO;
         } else {
             log.info("Unable to find product with id {}", productId);
             return null;
         }
     }
+
+    // JSON Merge Patch (RFC 7386): members present in the patch replace the field and null clears it.
+    // Only the product row is loaded, plus its categories when the patch replaces them, and the
+    // dynamic update writes just the changed columns
+    @Transactional(rollbackFor = Exception.class)
+    public ResourceVersionDTO patchProduct(Integer productId, JsonNode patch, String ifMatch) {
+        if (patch == null || !patch.isObject()) {
+            log.error("Unable to patch product {} with a non-object patch", productId);
+            return null;
+        }
+
+        // Everything is validated before the managed product is touched, so nothing is flushed on failure
+        var title = patch.get("title");
+        var description = patch.get("description");
+        var releaseDate = patch.get("releaseDate");
+        var categories = patch.get("categories");
+
+        if (title != null && (!title.isTextual() || title.asText().isEmpty())) {
+            log.error("Unable to patch product {} to have empty title", productId);
+            return null;
+        }
+
+        if (title != null && title.asText().length() > MAX_TITLE_LENGTH) {
+            log.error("Unable to patch product {} to have a title longer than {} characters", productId, MAX_TITLE_LENGTH);
+            return null;
+        }
+
+        if (description != null && !description.isNull()
+                && (!description.isTextual() || description.asText().length() > MAX_DESCRIPTION_LENGTH)) {
+            log.error("Unable to patch product {} with description {}", productId, description);
+            return null;
+        }
+
+        var parsedReleaseDate = parseReleaseDate(releaseDate);
+        var categoryIds = parseCategoryIds(categories);
+
+        if ((releaseDate != null && !releaseDate.isNull() && parsedReleaseDate == null)
+                || (categories != null && categoryIds == null)) {
+            log.error("Unable to patch product {} with {}", productId, patch);
+            return null;
+        }
+
+        var optionalProduct = productRepository.findById(productId);
+
+        if (optionalProduct.isEmpty()) {
+            log.info("Unable to find product with id {}", productId);
+            return null;
+        }
+
+        if (ifMatch != null && !VersionTags.matches(ifMatch, getProductVersion(productId).getEtag())) {
+            log.info("Product with id {} no longer matches {}", productId, ifMatch);
+            throw new ObjectOptimisticLockingFailureException(Product.class, productId);
+        }
+
+        log.info("Patching product with id {}", productId);
+        var product = optionalProduct.get();
+
+        if (title != null) {
+            product.setTitle(title.asText());
+        }
+
+        if (description != null) {
+            product.setDescription(description.isNull() ? null : description.asText());
+        }
+
+        if (releaseDate != null) {
+            product.setReleaseDate(parsedReleaseDate);
+        }
+
+        if (categoryIds != null) {
+            updateCategories(product, categoryIds, Map.of());
+        }
+
+        productRepository.saveAndFlush(product);
+        productCache.evict(productId);
+
+        if (title != null) {
+            productTitleIndex.put(productId, product.getTitle());
+        }
+
+        if (categoryIds != null) {
+            categoryMembershipIndex.setCategories(productId, product.getCategories()
+                    .stream()
+                    .map(Category::getCategoryId)
+                    .toList());
+        }
+
+        return getProductVersion(productId);
+    }
+
+    private static OffsetDateTime parseReleaseDate(JsonNode releaseDate) {
+        if (releaseDate == null || !releaseDate.isTextual()) {
+            return null;
+        }
+
+        try {
+            return OffsetDateTime.parse(releaseDate.asText());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // Ids of a categories array like [{"categoryId": 1}]: empty for null, null when absent or malformed
+    private static Set<Integer> parseCategoryIds(JsonNode categories) {
+        if (categories == null || !(categories.isNull() || categories.isArray())) {
+            return null;
+        }
+
+        var categoryIds = new HashSet<Integer>();
+
+        for (var category : categories) {
+            var categoryId = category.get("categoryId");
+
+            if (categoryId == null || !categoryId.canConvertToInt()) {
+                return null;
+            }
+
+            categoryIds.add(categoryId.asInt());
+        }
+
+        return categoryIds;
+    }
+
+    // Only categories the product is not in yet are read, and only the changed category_product rows are
+    // written. Categories a batch has already loaded are taken from loadedCategories instead of being read again
+    private void updateCategories(Product product, Set<Integer> categoryIds, Map<Integer, Category> loadedCategories) {
+        var categories = product.getCategories();
+        categories.removeIf(category -> !categoryIds.contains(category.getCategoryId()));
+
+        var missingCategoryIds = new HashSet<>(categoryIds);
+        categories.forEach(category -> missingCategoryIds.remove(category.getCategoryId()));
+
+        var unloadedCategoryIds = new HashSet<Integer>();
+
+        for (var categoryId : missingCategoryIds) {
+            var category = loadedCategories.get(categoryId);
+
+            if (category != null) {
+                categories.add(category);
+            } else {
+                unloadedCategoryIds.add(categoryId);
+            }
+        }
+
+        if (!unloadedCategoryIds.isEmpty()) {
+            categories.addAll(categoryRepository.findAllById(unloadedCategoryIds));
+        }
+    }
+
+    private void indexProduct(Product product) {
+        productTitleIndex.put(product.getProductId(), product.getTitle());
+        categoryMembershipIndex.setCategories(product.getProductId(), product.getCategories()
+                .stream()
+                .map(Category::getCategoryId)
+                .toList());
+    }
+
+    private Map<Integer, Category> findCategoriesById(Collection<ProductDTO> productDTOs) {
+        var categoryIds = productDTOs.stream()
+                .filter(productDTO -> productDTO != null && productDTO.getCategories() != null)
+                .flatMap(productDTO -> productDTO.getCategories().stream())
+                .filter(Objects::nonNull)
+                .map(CategoryDTO::getCategoryId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        if (categoryIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return categoryRepository.findAllById(categoryIds)
+                .stream()
+                .collect(Collectors.toMap(Category::getCategoryId, Function.identity()));
+    }
+
+    // Checks everything the product and category_product columns would reject, since the valid items are
+    // saved in one transaction and a single failing row would roll back the whole batch
+    private static String validateBatchItem(ProductDTO productDTO, Map<Integer, Category> categoriesById,
+                                            boolean categoriesRequired) {
+        if (productDTO == null) {
+            return "Product is missing";
+        }
+
+        if (productDTO.getTitle() == null || productDTO.getTitle().isEmpty()) {
+            return "Title is required";
+        }
+
+        if (productDTO.getTitle().length() > MAX_TITLE_LENGTH) {
+            return "Title is longer than " + MAX_TITLE_LENGTH + " characters";
+        }
+
+        if (productDTO.getDescription() != null && productDTO.getDescription().length() > MAX_DESCRIPTION_LENGTH) {
+            return "Description is longer than " + MAX_DESCRIPTION_LENGTH + " characters";
+        }
+
+        // An update replaces the categories, so leaving them out would silently remove them all
+        if (categoriesRequired && productDTO.getCategories() == null) {
+            return "Categories are required";
+        }
+
+        if (productDTO.getCategories() != null) {
+            for (var categoryDTO : productDTO.getCategories()) {
+                if (categoryDTO == null || !categoriesById.containsKey(categoryDTO.getCategoryId())) {
+                    return "Unknown category " + (categoryDTO == null ? null : categoryDTO.getCategoryId());
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static Set<Category> resolveCategories(ProductDTO productDTO, Map<Integer, Category> categoriesById) {
+        var categories = new LinkedHashSet<Category>();
+
+        if (productDTO.getCategories() != null) {
+            for (var categoryDTO : productDTO.getCategories()) {
+                categories.add(categoriesById.get(categoryDTO.getCategoryId()));
+            }
+        }
+
+        return categories;
+    }
+
+    private static ProductBatchResultDTO batchSuccess(Integer index, Integer productId) {
+        return ProductBatchResultDTO.builder()
+                .index(index)
+                .productId(productId)
+                .success(true)
+                .build();
+    }
+
+    private static ProductBatchResultDTO batchFailure(Integer index, Integer productId, String error) {
+        return ProductBatchResultDTO.builder()
+                .index(index)
+                .productId(productId)
+                .success(false)
+                .error(error)
+                .build();
+    }
 }
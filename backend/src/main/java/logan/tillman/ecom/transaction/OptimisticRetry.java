@@ -0,0 +1,61 @@
+package logan.tillman.ecom.transaction;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Retry policy for internal jobs that write without a client supplied version: each attempt runs in
+// its own transaction and rereads what it changes, so a lost optimistic lock race is simply redone
+@Slf4j
+@Component
+public class OptimisticRetry {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final Duration backoff;
+
+    public OptimisticRetry(PlatformTransactionManager transactionManager,
+                           @Value("${ecom.retry.optimistic.max-attempts:3}") int maxAttempts,
+                           @Value("${ecom.retry.optimistic.backoff:50ms}") Duration backoff) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        for (var attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Giving up after {} optimistic lock conflicts", attempt);
+                    throw e;
+                }
+
+                log.warn("Optimistic lock conflict on attempt {} of {}, retrying", attempt, maxAttempts);
+                pause(attempt, e);
+            }
+        }
+    }
+
+    // Linear backoff with jitter so competing writers do not collide again in lockstep
+    private void pause(int attempt, OptimisticLockingFailureException conflict) {
+        var millis = backoff.toMillis() * attempt;
+
+        try {
+            Thread.sleep(millis + ThreadLocalRandom.current().nextLong(millis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
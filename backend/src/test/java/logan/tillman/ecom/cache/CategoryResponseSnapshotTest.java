@@ -0,0 +1,150 @@
+package logan.tillman.ecom.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import logan.tillman.ecom.dao.CategoryRepository;
+import logan.tillman.ecom.dao.CategorySummary;
+import logan.tillman.ecom.mapper.DtoMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CategoryResponseSnapshotTest {
+
+    @Mock
+    CategoryRepository categoryRepository;
+
+    @Mock
+    DtoMapper dtoMapper;
+
+    // Rebuilds are queued here and run by the test
+    List<Runnable> rebuildTasks;
+
+    CategoryResponseSnapshot categoryResponseSnapshot;
+
+    @BeforeEach
+    void setup() {
+        rebuildTasks = new ArrayList<>();
+        categoryResponseSnapshot = new CategoryResponseSnapshot(categoryRepository, dtoMapper, new ObjectMapper(),
+                Duration.ofMinutes(10), Duration.ofMinutes(1), rebuildTasks::add);
+
+        lenient().when(dtoMapper.mapToCategoryDTO(any(CategorySummary.class))).thenCallRealMethod();
+    }
+
+    @Test
+    @DisplayName("When the snapshot is read twice, then build the JSON and gzip bytes once")
+    void getTest() throws IOException {
+        when(categoryRepository.findAllProjectedBy(any(Sort.class))).thenReturn(List.of(category(1, "Books")));
+
+        var snapshot = categoryResponseSnapshot.get();
+        var secondRead = categoryResponseSnapshot.get();
+
+        verify(categoryRepository, times(1)).findAllProjectedBy(any(Sort.class));
+        verifyNoMoreInteractions(categoryRepository);
+
+        assertThat(secondRead).isSameAs(snapshot);
+        assertThat(snapshot.count()).isEqualTo(1);
+        assertThat(new String(snapshot.json(), StandardCharsets.UTF_8))
+                .startsWith("[{")
+                .contains("\"categoryId\":1", "\"name\":\"Books\"");
+        assertThat(gunzip(snapshot.gzip())).isEqualTo(snapshot.json());
+    }
+
+    @Test
+    @DisplayName("When a category write commits, then rebuild the snapshot in the background with a new ETag")
+    void invalidateTest() {
+        when(categoryRepository.findAllProjectedBy(any(Sort.class)))
+                .thenReturn(List.of(category(1, "Books")))
+                .thenReturn(List.of(category(1, "Books"), category(2, "Games")));
+
+        var oldSnapshot = categoryResponseSnapshot.get();
+        categoryResponseSnapshot.invalidate();
+
+        assertThat(rebuildTasks).hasSize(1);
+        rebuildTasks.get(0).run();
+
+        var newSnapshot = categoryResponseSnapshot.get();
+
+        verify(categoryRepository, times(2)).findAllProjectedBy(any(Sort.class));
+        assertThat(newSnapshot.count()).isEqualTo(2);
+        assertThat(newSnapshot.etag(false)).isNotEqualTo(oldSnapshot.etag(false));
+    }
+
+    @Test
+    @DisplayName("When the snapshot is read before its rebuild has run, then build the current one for the reader")
+    void getBeforeRebuildTest() {
+        when(categoryRepository.findAllProjectedBy(any(Sort.class)))
+                .thenReturn(List.of(category(1, "Books")))
+                .thenReturn(List.of(category(1, "Comics")));
+
+        categoryResponseSnapshot.get();
+        categoryResponseSnapshot.invalidate();
+
+        var snapshot = categoryResponseSnapshot.get();
+        rebuildTasks.get(0).run();
+
+        verify(categoryRepository, times(2)).findAllProjectedBy(any(Sort.class));
+        assertThat(new String(snapshot.json(), StandardCharsets.UTF_8)).contains("Comics");
+        assertThat(categoryResponseSnapshot.get()).isSameAs(snapshot);
+    }
+
+    @Test
+    @DisplayName("When the snapshot is older than refresh-after-write, then serve it and rebuild it in the background")
+    void getStaleTest() {
+        categoryResponseSnapshot = new CategoryResponseSnapshot(categoryRepository, dtoMapper, new ObjectMapper(),
+                Duration.ofMinutes(10), Duration.ZERO, rebuildTasks::add);
+
+        when(categoryRepository.findAllProjectedBy(any(Sort.class)))
+                .thenReturn(List.of(category(1, "Books")))
+                .thenReturn(List.of(category(1, "Books"), category(2, "Seeded elsewhere")));
+
+        var oldSnapshot = categoryResponseSnapshot.get();
+        var staleRead = categoryResponseSnapshot.get();
+
+        assertThat(staleRead).isSameAs(oldSnapshot);
+        assertThat(rebuildTasks).hasSize(1);
+
+        rebuildTasks.get(0).run();
+
+        assertThat(categoryResponseSnapshot.nativeCache().asMap().values())
+                .singleElement()
+                .satisfies(snapshot -> assertThat(snapshot.count()).isEqualTo(2));
+        assertThat(categoryResponseSnapshot.refreshes()).isEqualTo(1);
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        try (var input = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static CategorySummary category(Integer categoryId, String name) {
+        return new CategorySummary() {
+            @Override
+            public Integer getCategoryId() {
+                return categoryId;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}
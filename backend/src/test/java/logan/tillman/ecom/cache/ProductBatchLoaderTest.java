@@ -0,0 +1,185 @@
+package logan.tillman.ecom.cache;
+
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.dto.VersionedProductDTO;
+import logan.tillman.ecom.entity.Category;
+import logan.tillman.ecom.entity.Product;
+import logan.tillman.ecom.mapper.DtoMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductBatchLoaderTest {
+
+    @Mock
+    ProductRepository productRepository;
+
+    @Mock
+    DtoMapper dtoMapper;
+
+    @Captor
+    ArgumentCaptor<Collection<Integer>> productIdsCaptor;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
+        lenient().when(dtoMapper.mapToVersionedProductDTO(any(Product.class))).thenCallRealMethod();
+    }
+
+    @Test
+    @DisplayName("When one product is loaded, then map it with its categories and version tag")
+    void loadTest() {
+        var productBatchLoader = new ProductBatchLoader(productRepository, dtoMapper, Duration.ofMillis(1), 100);
+        var category = Category.builder().categoryId(7).name("Category name").build();
+
+        when(productRepository.findWithCategoriesByProductIdIn(any(), any(Sort.class)))
+                .thenReturn(List.of(product(1, category)));
+
+        var productDTO = productBatchLoader.load(1);
+
+        verify(productRepository, times(1)).findWithCategoriesByProductIdIn(productIdsCaptor.capture(), any(Sort.class));
+        verifyNoMoreInteractions(productRepository);
+
+        assertThat(productIdsCaptor.getValue()).containsExactly(1);
+        assertThat(productDTO.getEtag()).isEqualTo("\"p1-0-0\"");
+        assertThat(productDTO.getProduct())
+                .hasFieldOrPropertyWithValue("productId", 1)
+                .extracting(ProductDTO::getCategories)
+                .asList()
+                .first()
+                .hasFieldOrPropertyWithValue("categoryId", 7);
+    }
+
+    @Test
+    @DisplayName("When the product does not exist, then return null")
+    void loadNotFoundTest() {
+        var productBatchLoader = new ProductBatchLoader(productRepository, dtoMapper, Duration.ofMillis(1), 100);
+
+        when(productRepository.findWithCategoriesByProductIdIn(any(), any(Sort.class))).thenReturn(List.of());
+
+        assertThat(productBatchLoader.load(1)).isNull();
+    }
+
+    @Test
+    @DisplayName("When loads for different products arrive within the window, then read them all with one query")
+    void loadCoalescedTest() throws Exception {
+        var productBatchLoader = new ProductBatchLoader(productRepository, dtoMapper, Duration.ofSeconds(5), 4);
+
+        when(productRepository.findWithCategoriesByProductIdIn(any(), any(Sort.class)))
+                .thenReturn(IntStream.rangeClosed(1, 4).mapToObj(this::product).toList());
+
+        // The batch fills up before the window ends, so the query runs without waiting it out
+        var products = assertTimeout(Duration.ofSeconds(4), () -> loadConcurrently(productBatchLoader, 1, 2, 3, 4));
+
+        verify(productRepository, times(1)).findWithCategoriesByProductIdIn(productIdsCaptor.capture(), any(Sort.class));
+        verifyNoMoreInteractions(productRepository);
+
+        assertThat(productIdsCaptor.getValue()).containsExactlyInAnyOrder(1, 2, 3, 4);
+        assertThat(products)
+                .extracting(product -> product.getProduct().getProductId())
+                .containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    @DisplayName("When the same product is loaded concurrently, then read it once and share the result")
+    void loadSameProductTest() throws Exception {
+        var productBatchLoader = new ProductBatchLoader(productRepository, dtoMapper, Duration.ofMillis(200), 100);
+
+        when(productRepository.findWithCategoriesByProductIdIn(any(), any(Sort.class))).thenReturn(List.of(product(1)));
+
+        var products = loadConcurrently(productBatchLoader, 1, 1, 1);
+
+        verify(productRepository, times(1)).findWithCategoriesByProductIdIn(productIdsCaptor.capture(), any(Sort.class));
+        verifyNoMoreInteractions(productRepository);
+
+        assertThat(productIdsCaptor.getValue()).containsExactly(1);
+        assertThat(products).hasSize(3).allSatisfy(productDTO -> assertThat(productDTO).isSameAs(products.get(0)));
+    }
+
+    @Test
+    @DisplayName("When the batch query fails, then throw its exception to every caller in the batch")
+    void loadFailureTest() {
+        var productBatchLoader = new ProductBatchLoader(productRepository, dtoMapper, Duration.ofSeconds(5), 2);
+        var failure = new DataAccessResourceFailureException("Connection refused");
+
+        when(productRepository.findWithCategoriesByProductIdIn(any(), any(Sort.class))).thenThrow(failure);
+
+        assertThatThrownBy(() -> loadConcurrently(productBatchLoader, 1, 2))
+                .isInstanceOf(ExecutionException.class)
+                .hasCause(failure);
+    }
+
+    @Test
+    @DisplayName("When the window is zero, then query for each load directly")
+    void loadWithoutWindowTest() {
+        var productBatchLoader = new ProductBatchLoader(productRepository, dtoMapper, Duration.ZERO, 100);
+
+        when(productRepository.findWithCategoriesByProductIdIn(any(), any(Sort.class))).thenReturn(List.of(product(1)));
+
+        productBatchLoader.load(1);
+        productBatchLoader.load(1);
+
+        verify(productRepository, times(2)).findWithCategoriesByProductIdIn(any(), any(Sort.class));
+        verifyNoMoreInteractions(productRepository);
+    }
+
+    private List<VersionedProductDTO> loadConcurrently(ProductBatchLoader productBatchLoader, Integer... productIds) throws Exception {
+        var start = new CountDownLatch(1);
+        var futures = new ArrayList<Future<VersionedProductDTO>>();
+
+        try (var executor = Executors.newFixedThreadPool(productIds.length)) {
+            for (var productId : productIds) {
+                Callable<VersionedProductDTO> load = () -> {
+                    start.await();
+                    return productBatchLoader.load(productId);
+                };
+                futures.add(executor.submit(load));
+            }
+
+            start.countDown();
+
+            var products = new ArrayList<VersionedProductDTO>();
+
+            for (var future : futures) {
+                products.add(future.get());
+            }
+
+            return products;
+        }
+    }
+
+    private Product product(int productId, Category... categories) {
+        return Product.builder()
+                .productId(productId)
+                .title("Product " + productId)
+                .categories(new LinkedHashSet<>(List.of(categories)))
+                .build();
+    }
+}
@@ -0,0 +1,109 @@
+package logan.tillman.ecom.cache;
+
+import logan.tillman.ecom.dto.CategoryDTO;
+import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.dto.VersionedProductDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class ProductCacheTest {
+
+    ProductCache productCache;
+
+    VersionedProductDTO productDTO;
+
+    @BeforeEach
+    void setup() {
+        productCache = new ProductCache(100, Duration.ofMinutes(5), Duration.ofMinutes(1), Runnable::run);
+
+        productDTO = versioned(ProductDTO.builder()
+                .productId(1)
+                .title("Product title")
+                .categories(List.of(CategoryDTO.builder().categoryId(7).name("Category name").build()))
+                .build());
+    }
+
+    @Test
+    @DisplayName("When a product is loaded, then serve later reads from the cache and record the hit")
+    void getTest() {
+        productCache.get(1, productId -> productDTO);
+        var cachedProduct = productCache.get(1, productId -> null);
+
+        assertThat(cachedProduct).isSameAs(productDTO);
+        assertThat(productCache.stats().hitCount()).isEqualTo(1);
+        assertThat(productCache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("When the loader finds nothing, then do not cache the miss")
+    void getNotFoundTest() {
+        productCache.get(1, productId -> null);
+        var loadedProduct = productCache.get(1, productId -> productDTO);
+
+        assertThat(loadedProduct).isSameAs(productDTO);
+    }
+
+    @Test
+    @DisplayName("When several products are read, then load only the uncached ones with one call")
+    void getAllTest() {
+        var otherProduct = versioned(ProductDTO.builder()
+                .productId(2)
+                .title("Other product")
+                .build());
+        var loadedIds = new ArrayList<Set<Integer>>();
+
+        productCache.put(productDTO);
+        var products = productCache.getAll(List.of(1, 2, 3), productIds -> {
+            loadedIds.add(productIds);
+            return Map.of(2, otherProduct);
+        });
+
+        assertThat(loadedIds).containsExactly(Set.of(2, 3));
+        assertThat(products).containsOnly(entry(1, productDTO), entry(2, otherProduct));
+        assertThat(productCache.nativeCache().getIfPresent(2)).isSameAs(otherProduct);
+    }
+
+    @Test
+    @DisplayName("When a category is renamed, then evict the cached products embedding it")
+    void evictByCategoryTest() {
+        var otherProduct = versioned(ProductDTO.builder()
+                .productId(2)
+                .title("Other product")
+                .build());
+
+        productCache.put(productDTO);
+        productCache.put(otherProduct);
+
+        productCache.evictByCategory(7);
+
+        assertThat(productCache.nativeCache().getIfPresent(1)).isNull();
+        assertThat(productCache.nativeCache().getIfPresent(2)).isSameAs(otherProduct);
+    }
+
+    @Test
+    @DisplayName("When a product is evicted, then load it again on the next read")
+    void evictTest() {
+        productCache.put(productDTO);
+
+        productCache.evict(1);
+
+        assertThat(productCache.nativeCache().getIfPresent(1)).isNull();
+    }
+
+    private static VersionedProductDTO versioned(ProductDTO productDTO) {
+        return VersionedProductDTO.builder()
+                .product(productDTO)
+                .etag("\"p" + productDTO.getProductId() + "-0-0\"")
+                .build();
+    }
+}
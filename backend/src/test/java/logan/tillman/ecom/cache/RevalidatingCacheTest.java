@@ -0,0 +1,139 @@
+package logan.tillman.ecom.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RevalidatingCacheTest {
+
+    // Refreshes are queued here and run by the test, so it decides what happens while they are in flight
+    List<Runnable> refreshTasks;
+
+    @BeforeEach
+    void setup() {
+        refreshTasks = new ArrayList<>();
+    }
+
+    @Test
+    @DisplayName("When a stale entry is read, then serve it and replace it with one background load")
+    void getStaleTest() {
+        var cache = new RevalidatingCache<Integer, String>(100, Duration.ofMinutes(10), Duration.ZERO, refreshTasks::add);
+        cache.get(1, key -> "Old title");
+
+        var firstRead = cache.get(1, key -> "New title");
+        var secondRead = cache.get(1, key -> "New title");
+
+        assertThat(firstRead).isEqualTo("Old title");
+        assertThat(secondRead).isEqualTo("Old title");
+        assertThat(refreshTasks).hasSize(1);
+
+        refreshTasks.get(0).run();
+
+        assertThat(cache.nativeCache().getIfPresent(1)).isEqualTo("New title");
+        assertThat(cache.refreshes()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("When an entry is fresh, then serve it without refreshing")
+    void getFreshTest() {
+        var cache = new RevalidatingCache<Integer, String>(100, Duration.ofMinutes(10), Duration.ofMinutes(5), refreshTasks::add);
+        cache.get(1, key -> "Title");
+
+        var cachedValue = cache.get(1, key -> "Other title");
+
+        assertThat(cachedValue).isEqualTo("Title");
+        assertThat(refreshTasks).isEmpty();
+    }
+
+    @Test
+    @DisplayName("When a stale entry is evicted while its refresh is in flight, then do not bring it back")
+    void refreshAfterEvictionTest() {
+        var cache = new RevalidatingCache<Integer, String>(100, Duration.ofMinutes(10), Duration.ZERO, refreshTasks::add);
+        cache.get(1, key -> "Old title");
+        cache.get(1, key -> "Reloaded title");
+
+        cache.invalidate(1);
+        refreshTasks.get(0).run();
+
+        assertThat(cache.nativeCache().getIfPresent(1)).isNull();
+    }
+
+    @Test
+    @DisplayName("When an entry is written while a miss is loading, then return the load without caching it")
+    void getDuringWriteTest() {
+        var cache = new RevalidatingCache<Integer, String>(100, Duration.ofMinutes(10), Duration.ofMinutes(5), refreshTasks::add);
+
+        var loadedValue = cache.get(1, key -> {
+            cache.put(1, "Committed title");
+            return "Title read before the commit";
+        });
+
+        assertThat(loadedValue).isEqualTo("Title read before the commit");
+        assertThat(cache.nativeCache().getIfPresent(1)).isEqualTo("Committed title");
+    }
+
+    @Test
+    @DisplayName("When another entry is written while a miss is loading, then still cache the load")
+    void getDuringOtherWriteTest() {
+        var cache = new RevalidatingCache<Integer, String>(100, Duration.ofMinutes(10), Duration.ofMinutes(5), refreshTasks::add);
+
+        cache.get(1, key -> {
+            cache.put(2, "Other title");
+            cache.invalidate(3);
+            return "Title";
+        });
+
+        assertThat(cache.nativeCache().getIfPresent(1)).isEqualTo("Title");
+        assertThat(cache.nativeCache().getIfPresent(2)).isEqualTo("Other title");
+    }
+
+    @Test
+    @DisplayName("When entries are invalidated by predicate while a miss is loading, then return the load without caching it")
+    void getDuringInvalidateIfTest() {
+        var cache = new RevalidatingCache<Integer, String>(100, Duration.ofMinutes(10), Duration.ofMinutes(5), refreshTasks::add);
+
+        var loadedValue = cache.get(1, key -> {
+            cache.invalidateIf(value -> value.startsWith("Title"));
+            return "Title read before the commit";
+        });
+
+        assertThat(loadedValue).isEqualTo("Title read before the commit");
+        assertThat(cache.nativeCache().getIfPresent(1)).isNull();
+    }
+
+    @Test
+    @DisplayName("When the loader finds nothing, then do not cache the miss")
+    void getNotFoundTest() {
+        var cache = new RevalidatingCache<Integer, String>(100, Duration.ofMinutes(10), Duration.ofMinutes(5), refreshTasks::add);
+
+        cache.get(1, key -> null);
+        var loadedValue = cache.get(1, key -> "Title");
+
+        assertThat(loadedValue).isEqualTo("Title");
+    }
+
+    @Test
+    @DisplayName("When several entries are read, then load only the missing ones with one call")
+    void getAllTest() {
+        var cache = new RevalidatingCache<Integer, String>(100, Duration.ofMinutes(10), Duration.ofMinutes(5), refreshTasks::add);
+        var loadedKeys = new ArrayList<Set<Integer>>();
+        cache.put(1, "First title");
+
+        var values = cache.getAll(List.of(1, 2, 3), keys -> {
+            loadedKeys.add(keys);
+            return Map.of(2, "Second title");
+        });
+
+        assertThat(loadedKeys).containsExactly(Set.of(2, 3));
+        assertThat(values).isEqualTo(Map.of(1, "First title", 2, "Second title"));
+        assertThat(cache.nativeCache().getIfPresent(2)).isEqualTo("Second title");
+    }
+}
@@ -0,0 +1,106 @@
+package logan.tillman.ecom.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTest {
+
+    SingleFlight<Integer, String> singleFlight;
+
+    @BeforeEach
+    void setup() {
+        singleFlight = new SingleFlight<>();
+    }
+
+    @Test
+    @DisplayName("When the same key is loaded concurrently, then run the loader once and share its result")
+    void executeCoalescedTest() throws Exception {
+        var loaderCalls = new AtomicInteger();
+        var release = new CountDownLatch(1);
+
+        var results = executeConcurrently(3, key -> {
+            loaderCalls.incrementAndGet();
+            await(release);
+            return "Product " + key;
+        }, release);
+
+        assertThat(loaderCalls).hasValue(1);
+        assertThat(results).containsExactly("Product 1", "Product 1", "Product 1");
+        assertThat(singleFlight.loads()).isEqualTo(1);
+        assertThat(singleFlight.coalescedWaiters()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("When the shared load fails, then throw its exception to every waiter")
+    void executeFailureTest() {
+        var release = new CountDownLatch(1);
+        var failure = new IllegalStateException("Connection refused");
+
+        assertThatThrownBy(() -> executeConcurrently(2, key -> {
+            await(release);
+            throw failure;
+        }, release))
+                .isInstanceOf(ExecutionException.class)
+                .hasCause(failure);
+    }
+
+    @Test
+    @DisplayName("When loads do not overlap, then run the loader for each of them")
+    void executeSequentialTest() {
+        singleFlight.execute(1, key -> "First");
+        var secondResult = singleFlight.execute(1, key -> "Second");
+
+        assertThat(secondResult).isEqualTo("Second");
+        assertThat(singleFlight.loads()).isEqualTo(2);
+        assertThat(singleFlight.coalescedWaiters()).isZero();
+    }
+
+    // Holds the first load open until every caller has joined it, then lets it finish
+    private List<String> executeConcurrently(int callers, Function<Integer, String> loader, CountDownLatch release) throws Exception {
+        var futures = new ArrayList<Future<String>>();
+
+        try (var executor = Executors.newFixedThreadPool(callers)) {
+            for (var i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> singleFlight.execute(1, loader)));
+            }
+
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+            while (singleFlight.loads() + singleFlight.coalescedWaiters() < callers && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+
+            release.countDown();
+
+            var results = new ArrayList<String>();
+
+            for (var future : futures) {
+                results.add(future.get());
+            }
+
+            return results;
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
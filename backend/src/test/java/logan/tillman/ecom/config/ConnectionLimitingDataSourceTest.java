@@ -0,0 +1,88 @@
+package logan.tillman.ecom.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ConnectionLimitingDataSourceTest {
+
+    @Mock
+    DataSource dataSource;
+
+    @Mock
+    Connection connection;
+
+    @Test
+    @DisplayName("When a connection is open, then hold a permit until it is closed once")
+    void getConnectionTest() throws Exception {
+        var limitingDataSource = new ConnectionLimitingDataSource(dataSource, 2, Duration.ofMillis(10));
+
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        var openConnection = limitingDataSource.getConnection();
+
+        assertThat(limitingDataSource.availablePermits()).isEqualTo(1);
+
+        openConnection.close();
+        openConnection.close();
+
+        verify(connection, times(2)).close();
+        assertThat(limitingDataSource.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("When every connection is in use, then fail fast without asking the pool")
+    void getConnectionOverLimitTest() throws Exception {
+        var limitingDataSource = new ConnectionLimitingDataSource(dataSource, 1, Duration.ofMillis(10));
+
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        limitingDataSource.getConnection();
+
+        assertThatThrownBy(limitingDataSource::getConnection)
+                .isInstanceOf(ConnectionLimitExceededException.class)
+                .hasMessage("All 1 database connections stayed in use for 10ms");
+
+        verify(dataSource, times(1)).getConnection();
+        verifyNoMoreInteractions(dataSource);
+    }
+
+    @Test
+    @DisplayName("When the pool fails to hand out a connection, then give the permit back")
+    void getConnectionFailureTest() throws Exception {
+        var limitingDataSource = new ConnectionLimitingDataSource(dataSource, 1, Duration.ofMillis(10));
+        var failure = new SQLTransientConnectionException("Connection is not available");
+
+        when(dataSource.getConnection()).thenThrow(failure);
+
+        assertThatThrownBy(limitingDataSource::getConnection).isSameAs(failure);
+        assertThat(limitingDataSource.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("When a method of the connection fails, then throw its own exception")
+    void connectionFailureTest() throws Exception {
+        var limitingDataSource = new ConnectionLimitingDataSource(dataSource, 1, Duration.ofMillis(10));
+        var failure = new SQLException("Connection reset");
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement("select 1")).thenThrow(failure);
+
+        var openConnection = limitingDataSource.getConnection();
+
+        assertThatThrownBy(() -> openConnection.prepareStatement("select 1")).isSameAs(failure);
+    }
+}
@@ -0,0 +1,124 @@
+package logan.tillman.ecom.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StatementMetricsFilterTest {
+
+    SimpleMeterRegistry meterRegistry;
+    QueryBudgetProperties queryBudget;
+    StatementMetricsFilter filter;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        queryBudget = new QueryBudgetProperties();
+        queryBudget.getEndpoints().put("/products/{productId}", Map.of("get", 1));
+        filter = new StatementMetricsFilter(meterRegistry, queryBudget);
+    }
+
+    @Test
+    @DisplayName("When a request runs statements, then record their count under the matched endpoint")
+    void doFilterTest() throws Exception {
+        var inspector = new StatementCountingInspector(null);
+        var chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/products/{productId}");
+                inspector.inspect("select p1_0.product_id from product p1_0");
+                inspector.inspect("select c1_0.category_id from category c1_0");
+            }
+        });
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/products/1"), new MockHttpServletResponse(), chain);
+
+        var summary = meterRegistry.get(StatementMetricsFilter.METRIC_NAME)
+                .tag("method", "GET")
+                .tag("uri", "/products/{productId}")
+                .tag("status", "200")
+                .tag("budget", "exceeded")
+                .summary();
+
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("When budgets are enforced and a request goes over its budget, then fail it")
+    void doFilterOverBudgetTest() {
+        queryBudget.setEnforce(true);
+        var inspector = new StatementCountingInspector(null);
+        var chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/products/{productId}");
+                inspector.inspect("select p1_0.product_id from product p1_0");
+                inspector.inspect("select c1_0.category_id from category c1_0");
+            }
+        });
+
+        assertThatThrownBy(() -> filter.doFilter(new MockHttpServletRequest("GET", "/products/1"), new MockHttpServletResponse(), chain))
+                .isInstanceOf(QueryBudgetExceededException.class)
+                .hasMessage("GET /products/{productId} ran 2 SQL statements, over its budget of 1");
+    }
+
+    @Test
+    @DisplayName("When the same statement runs again and again, then report it as the most repeated one")
+    void stopRepeatedStatementTest() {
+        var inspector = new StatementCountingInspector(null);
+
+        StatementCountingInspector.start();
+        inspector.inspect("select p1_0.product_id from product p1_0");
+
+        for (var i = 0; i < 3; i++) {
+            inspector.inspect("select c1_0.category_id from category c1_0 where c1_0.product_id=?");
+        }
+
+        var count = StatementCountingInspector.stop();
+
+        assertThat(count.statements()).isEqualTo(4);
+        assertThat(count.mostRepeatedTimes()).isEqualTo(3);
+        assertThat(count.mostRepeatedSql()).contains("where c1_0.product_id=?");
+    }
+
+    @Test
+    @DisplayName("When no handler matches the request, then tag it as UNKNOWN instead of by its path")
+    void doFilterUnmatchedTest() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/wp-admin"), new MockHttpServletResponse(), new MockFilterChain());
+
+        var summary = meterRegistry.get(StatementMetricsFilter.METRIC_NAME).tag("uri", "UNKNOWN").summary();
+
+        assertThat(summary.totalAmount()).isZero();
+    }
+
+    @Test
+    @DisplayName("When statements run outside a request, then pass them to the wrapped inspector without counting")
+    void inspectOutsideRequestTest() {
+        var recorded = new ArrayList<String>();
+        var inspector = new StatementCountingInspector(sql -> {
+            recorded.add(sql);
+            return sql;
+        });
+
+        var inspectedSql = inspector.inspect("select 1");
+
+        assertThat(inspectedSql).isEqualTo("select 1");
+        assertThat(recorded).containsExactly("select 1");
+        assertThat(StatementCountingInspector.stop().statements()).isZero();
+    }
+}
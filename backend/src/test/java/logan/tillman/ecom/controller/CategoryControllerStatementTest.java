@@ -0,0 +1,120 @@
+package logan.tillman.ecom.controller;
+
+import jakarta.persistence.EntityManager;
+import logan.tillman.ecom.SqlStatementRecorder;
+import logan.tillman.ecom.config.QueryBudgetProperties;
+import logan.tillman.ecom.dao.CategoryRepository;
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.entity.Category;
+import logan.tillman.ecom.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@ActiveProfiles(value = "test")
+public class CategoryControllerStatementTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    QueryBudgetProperties queryBudget;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    private Category category;
+
+    @BeforeEach
+    void setup() {
+        category = categoryRepository.save(Category.builder().name("Category name").build());
+
+        for (var i = 0; i < 3; i++) {
+            productRepository.save(Product.builder()
+                    .title("Product " + i)
+                    .categories(new LinkedHashSet<>(List.of(category)))
+                    .build());
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementRecorder.reset();
+    }
+
+    @Test
+    @DisplayName("When a category is fetched with its products, then stay within the endpoint's query budget")
+    void getCategoryBudgetTest() throws Exception {
+        mockMvc.perform(get("/categories/{categoryId}", category.getCategoryId()))
+                .andExpect(status().isOk());
+
+        assertThat(SqlStatementRecorder.statements()).hasSizeLessThanOrEqualTo(queryBudget.budget("GET", "/categories/{categoryId}"));
+    }
+
+    @Test
+    @DisplayName("When a page of a category's products is fetched, then stay within the endpoint's query budget")
+    void getCategoryProductsBudgetTest() throws Exception {
+        mockMvc.perform(get("/categories/{categoryId}/products", category.getCategoryId()))
+                .andExpect(status().isOk());
+
+        assertThat(SqlStatementRecorder.statements())
+                .hasSizeLessThanOrEqualTo(queryBudget.budget("GET", "/categories/{categoryId}/products"));
+    }
+
+    @Test
+    @DisplayName("When the products of a category that does not exist are fetched, then send NOT_FOUND")
+    void getCategoryProductsNotFoundTest() throws Exception {
+        mockMvc.perform(get("/categories/{categoryId}/products", category.getCategoryId() + 1))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("When a category page with products is fetched, then stay within the endpoint's query budget")
+    void getCategoriesPageBudgetTest() throws Exception {
+        mockMvc.perform(get("/categories").param("page", "0").param("include", "products"))
+                .andExpect(status().isOk());
+
+        assertThat(SqlStatementRecorder.statements()).hasSizeLessThanOrEqualTo(queryBudget.budget("GET", "/categories"));
+    }
+
+    @Test
+    @DisplayName("When a category is renamed, then send the same ETag a later fetch of it does")
+    void updateCategoryETagTest() throws Exception {
+        var etag = mockMvc.perform(put("/categories/{categoryId}", category.getCategoryId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/categories/{categoryId}", category.getCategoryId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+}
@@ -1,6 +1,14 @@
 package logan.tillman.ecom.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import logan.tillman.ecom.cache.CategoryResponseSnapshot;
 import logan.tillman.ecom.dto.CategoryDTO;
+import logan.tillman.ecom.dto.CategoryProductPageDTO;
+import logan.tillman.ecom.dto.ResourceVersionDTO;
+import logan.tillman.ecom.dto.VersionedCategoryDTO;
+import logan.tillman.ecom.entity.Category;
 import logan.tillman.ecom.service.CategoryService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,8 +18,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 
@@ -28,6 +43,7 @@ public class CategoryControllerTest {
     CategoryController categoryController;
 
     private CategoryDTO categoryDTO;
+    private ResourceVersionDTO version;
 
     @BeforeEach
     void setup() {
@@ -35,6 +51,94 @@ public class CategoryControllerTest {
                 .categoryId(1)
                 .name("A random category")
                 .build();
+
+        version = ResourceVersionDTO.builder()
+                .etag("\"c-1-0\"")
+                .lastModified(1_700_000_000_000L)
+                .build();
+    }
+
+    private ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/categories"), new MockHttpServletResponse());
+    }
+
+    @Nested
+    @DisplayName("getAllCategories Test Suite")
+    class GetAllCategoriesSnapshotTests {
+
+        private final CategoryResponseSnapshot.Snapshot snapshot = new CategoryResponseSnapshot.Snapshot(
+                "[{\"categoryId\":1}]".getBytes(StandardCharsets.UTF_8), new byte[]{31, -117}, "5d41402a", 1);
+
+        @Test
+        @DisplayName("When the listing is requested, then send the stored JSON bytes with the content hash as ETag")
+        void getAllCategoriesTest() {
+            when(categoryService.getAllCategoriesSnapshot()).thenReturn(snapshot);
+            var response = new MockHttpServletResponse();
+
+            var entity = categoryController.getAllCategories(null,
+                    new ServletWebRequest(new MockHttpServletRequest("GET", "/categories"), response));
+
+            verify(categoryService, times(1)).getAllCategoriesSnapshot();
+            verifyNoMoreInteractions(categoryService);
+
+            assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(entity.getBody()).isSameAs(snapshot.json());
+            assertThat(entity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+            assertThat(entity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+            assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"5d41402a\"");
+        }
+
+        @Test
+        @DisplayName("When the client accepts gzip, then send the stored gzip bytes with their own ETag")
+        void getAllCategoriesGzipTest() {
+            when(categoryService.getAllCategoriesSnapshot()).thenReturn(snapshot);
+            var response = new MockHttpServletResponse();
+
+            var entity = categoryController.getAllCategories("br, gzip;q=0.8",
+                    new ServletWebRequest(new MockHttpServletRequest("GET", "/categories"), response));
+
+            assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(entity.getBody()).isSameAs(snapshot.gzip());
+            assertThat(entity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+            assertThat(entity.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+            assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"5d41402a-gzip\"");
+        }
+
+        @Test
+        @DisplayName("When gzip is refused with q=0, then send the JSON bytes")
+        void getAllCategoriesGzipRefusedTest() {
+            when(categoryService.getAllCategoriesSnapshot()).thenReturn(snapshot);
+
+            var entity = categoryController.getAllCategories("gzip;q=0", webRequest());
+
+            assertThat(entity.getBody()).isSameAs(snapshot.json());
+        }
+
+        @Test
+        @DisplayName("When the If-None-Match tag is the content hash, then send NOT_MODIFIED")
+        void getAllCategoriesNotModifiedTest() {
+            when(categoryService.getAllCategoriesSnapshot()).thenReturn(snapshot);
+
+            var request = new MockHttpServletRequest("GET", "/categories");
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, snapshot.etag(false));
+
+            var entity = categoryController.getAllCategories(null, new ServletWebRequest(request, new MockHttpServletResponse()));
+
+            assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(entity.getBody()).isNull();
+        }
+
+        @Test
+        @DisplayName("When there are no categories, then send a NOT_FOUND response")
+        void getAllCategoriesEmptyTest() {
+            when(categoryService.getAllCategoriesSnapshot()).thenReturn(
+                    new CategoryResponseSnapshot.Snapshot("[]".getBytes(StandardCharsets.UTF_8), new byte[0], "d751713988987e93", 0));
+
+            var entity = categoryController.getAllCategories(null, webRequest());
+
+            assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+            assertThat(entity.getBody()).isNull();
+        }
     }
 
     @Nested
@@ -42,13 +146,15 @@ public class CategoryControllerTest {
     class GetAllCategoriesTests {
 
         @Test
-        @DisplayName("When categories are fetched, then send the list in an OK response")
+        @DisplayName("When categories are fetched without a page, then send the first page in an OK response")
         void getCategoriesTest() {
-            when(categoryService.getAllCategories()).thenReturn(List.of(categoryDTO));
+            when(categoryService.getCategoriesVersion(false)).thenReturn(version);
+            when(categoryService.getCategories(0, 20, false)).thenReturn(List.of(categoryDTO));
 
-            var response = categoryController.getCategories();
+            var response = categoryController.getCategories(null, 20, null, webRequest());
 
-            verify(categoryService, times(1)).getAllCategories();
+            verify(categoryService, times(1)).getCategoriesVersion(false);
+            verify(categoryService, times(1)).getCategories(0, 20, false);
             verifyNoMoreInteractions(categoryService);
 
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
@@ -58,16 +164,134 @@ public class CategoryControllerTest {
         @Test
         @DisplayName("When no categories are found, then send a NOT_FOUND response")
         void getCategoriesWithEmptyResponseTest() {
-            when(categoryService.getAllCategories()).thenReturn(Collections.emptyList());
+            when(categoryService.getCategoriesVersion(false)).thenReturn(version);
+            when(categoryService.getCategories(0, 20, false)).thenReturn(Collections.emptyList());
 
-            var response = categoryController.getCategories();
+            var response = categoryController.getCategories(null, 20, null, webRequest());
 
-            verify(categoryService, times(1)).getAllCategories();
+            verify(categoryService, times(1)).getCategoriesVersion(false);
+            verify(categoryService, times(1)).getCategories(0, 20, false);
             verifyNoMoreInteractions(categoryService);
 
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
             assertThat(response.getBody()).isNull();
         }
+
+        @Test
+        @DisplayName("When a page with products is requested, then fetch the paged categories")
+        void getCategoriesPageWithProductsTest() {
+            when(categoryService.getCategoriesVersion(true)).thenReturn(version);
+            when(categoryService.getCategories(anyInt(), anyInt(), anyBoolean())).thenReturn(List.of(categoryDTO));
+
+            var response = categoryController.getCategories(null, 20, "products", webRequest());
+
+            verify(categoryService, times(1)).getCategoriesVersion(true);
+            verify(categoryService, times(1)).getCategories(0, 20, true);
+            verifyNoMoreInteractions(categoryService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(List.of(categoryDTO));
+        }
+
+        @Test
+        @DisplayName("When the page request is invalid, then send a BAD_REQUEST response")
+        void getCategoriesWithInvalidPageTest() {
+            when(categoryService.getCategoriesVersion(false)).thenReturn(version);
+            when(categoryService.getCategories(anyInt(), anyInt(), anyBoolean())).thenReturn(null);
+
+            var response = categoryController.getCategories(-1, 20, null, webRequest());
+
+            verify(categoryService, times(1)).getCategoriesVersion(false);
+            verify(categoryService, times(1)).getCategories(-1, 20, false);
+            verifyNoMoreInteractions(categoryService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).isNull();
+        }
+
+        @Test
+        @DisplayName("When the If-None-Match tag is current, then send NOT_MODIFIED without fetching the categories")
+        void getCategoriesNotModifiedTest() {
+            when(categoryService.getCategoriesVersion(false)).thenReturn(version);
+
+            var request = new MockHttpServletRequest("GET", "/categories");
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, version.getEtag());
+            var response = new MockHttpServletResponse();
+
+            var entity = categoryController.getCategories(null, 20, null, new ServletWebRequest(request, response));
+
+            verify(categoryService, times(1)).getCategoriesVersion(false);
+            verifyNoMoreInteractions(categoryService);
+
+            assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(entity.getBody()).isNull();
+            assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(version.getEtag());
+        }
+    }
+
+    @Nested
+    @DisplayName("getCategoryProducts Test Suite")
+    class GetCategoryProductsTests {
+
+        @Test
+        @DisplayName("When the category products are paged, then send the page in an OK response")
+        void getCategoryProductsTest() {
+            var page = CategoryProductPageDTO.builder()
+                    .products(List.of())
+                    .page(0)
+                    .size(20)
+                    .total(0)
+                    .build();
+
+            when(categoryService.getCategoryProducts(1, List.of(5), 0, 20)).thenReturn(page);
+            when(categoryService.categoryExists(1)).thenReturn(true);
+
+            var response = categoryController.getCategoryProducts(1, List.of(5), 0, 20);
+
+            verify(categoryService, times(1)).getCategoryProducts(1, List.of(5), 0, 20);
+            verify(categoryService, times(1)).categoryExists(1);
+            verifyNoMoreInteractions(categoryService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(page);
+        }
+
+        @Test
+        @DisplayName("When the page is empty because the category does not exist, then send a NOT_FOUND response")
+        void getCategoryProductsWithNoCategoryTest() {
+            var page = CategoryProductPageDTO.builder()
+                    .products(List.of())
+                    .page(0)
+                    .size(20)
+                    .total(0)
+                    .build();
+
+            when(categoryService.getCategoryProducts(99, null, 0, 20)).thenReturn(page);
+            when(categoryService.categoryExists(99)).thenReturn(false);
+
+            var response = categoryController.getCategoryProducts(99, null, 0, 20);
+
+            verify(categoryService, times(1)).getCategoryProducts(99, null, 0, 20);
+            verify(categoryService, times(1)).categoryExists(99);
+            verifyNoMoreInteractions(categoryService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+            assertThat(response.getBody()).isNull();
+        }
+
+        @Test
+        @DisplayName("When the page is rejected, then send a BAD_REQUEST response")
+        void getCategoryProductsWithNullResponseTest() {
+            when(categoryService.getCategoryProducts(1, null, 0, 500)).thenReturn(null);
+
+            var response = categoryController.getCategoryProducts(1, null, 0, 500);
+
+            verify(categoryService, times(1)).getCategoryProducts(1, null, 0, 500);
+            verifyNoMoreInteractions(categoryService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).isNull();
+        }
     }
 
     @Nested
@@ -110,10 +334,12 @@ public class CategoryControllerTest {
         @Test
         @DisplayName("When a category is fetched, then send it in an OK response")
         void getCategoryTest() {
+            when(categoryService.getCategoryVersion(anyInt())).thenReturn(version);
             when(categoryService.getCategory(anyInt())).thenReturn(categoryDTO);
 
-            var response = categoryController.getCategory(1);
+            var response = categoryController.getCategory(1, webRequest());
 
+            verify(categoryService, times(1)).getCategoryVersion(anyInt());
             verify(categoryService, times(1)).getCategory(anyInt());
             verifyNoMoreInteractions(categoryService);
 
@@ -121,14 +347,31 @@ public class CategoryControllerTest {
             assertThat(response.getBody()).isEqualTo(categoryDTO);
         }
 
+        @Test
+        @DisplayName("When the If-None-Match tag is current, then send NOT_MODIFIED without loading the category")
+        void getCategoryNotModifiedTest() {
+            when(categoryService.getCategoryVersion(anyInt())).thenReturn(version);
+
+            var request = new MockHttpServletRequest("GET", "/categories/1");
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, version.getEtag());
+
+            var response = categoryController.getCategory(1, new ServletWebRequest(request, new MockHttpServletResponse()));
+
+            verify(categoryService, times(1)).getCategoryVersion(anyInt());
+            verifyNoMoreInteractions(categoryService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(response.getBody()).isNull();
+        }
+
         @Test
         @DisplayName("When the category is not found, then send a NOT_FOUND response")
         void getCategoryWithNullResponseTest() {
-            when(categoryService.getCategory(anyInt())).thenReturn(null);
+            when(categoryService.getCategoryVersion(anyInt())).thenReturn(null);
 
-            var response = categoryController.getCategory(1);
+            var response = categoryController.getCategory(1, webRequest());
 
-            verify(categoryService, times(1)).getCategory(anyInt());
+            verify(categoryService, times(1)).getCategoryVersion(anyInt());
             verifyNoMoreInteractions(categoryService);
 
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
@@ -141,31 +384,95 @@ public class CategoryControllerTest {
     class UpdateCategoryTests {
 
         @Test
-        @DisplayName("When a category is updated, then send the updated category in an OK response")
+        @DisplayName("When a category is updated, then send the updated category in an OK response with its new ETag")
         void updateCategoryTest() {
-            when(categoryService.updateCategory(anyInt(), any(CategoryDTO.class))).thenReturn(categoryDTO);
+            when(categoryService.updateCategory(anyInt(), any(CategoryDTO.class), isNull()))
+                    .thenReturn(VersionedCategoryDTO.builder().category(categoryDTO).etag(version.getEtag()).build());
 
-            var response = categoryController.updateCategory(1, categoryDTO);
+            var response = categoryController.updateCategory(1, categoryDTO, null);
 
-            verify(categoryService, times(1)).updateCategory(anyInt(), any(CategoryDTO.class));
+            verify(categoryService, times(1)).updateCategory(anyInt(), any(CategoryDTO.class), isNull());
             verifyNoMoreInteractions(categoryService);
 
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
             assertThat(response.getBody()).isEqualTo(categoryDTO);
+            assertThat(response.getHeaders().getETag()).isEqualTo(version.getEtag());
         }
 
         @Test
         @DisplayName("When a category fails to update, then return a BAD_REQUEST response")
         void updateCategoryWithNullResponseTest() {
-            when(categoryService.updateCategory(anyInt(), any(CategoryDTO.class))).thenReturn(null);
+            when(categoryService.updateCategory(anyInt(), any(CategoryDTO.class), isNull())).thenReturn(null);
 
-            var response = categoryController.updateCategory(1, categoryDTO);
+            var response = categoryController.updateCategory(1, categoryDTO, null);
 
-            verify(categoryService, times(1)).updateCategory(anyInt(), any(CategoryDTO.class));
+            verify(categoryService, times(1)).updateCategory(anyInt(), any(CategoryDTO.class), isNull());
             verifyNoMoreInteractions(categoryService);
 
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
             assertThat(response.getBody()).isNull();
         }
+
+        @Test
+        @DisplayName("When the If-Match tag is stale, then return a PRECONDITION_FAILED response")
+        void updateCategoryWithStaleIfMatchTest() {
+            when(categoryService.updateCategory(anyInt(), any(CategoryDTO.class), anyString()))
+                    .thenThrow(new ObjectOptimisticLockingFailureException(Category.class, 1));
+
+            var response = categoryController.updateCategory(1, categoryDTO, "\"c1-0-0-0\"");
+
+            verify(categoryService, times(1)).updateCategory(1, categoryDTO, "\"c1-0-0-0\"");
+            verifyNoMoreInteractions(categoryService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+            assertThat(response.getBody()).isNull();
+        }
+
+        @Test
+        @DisplayName("When another edit commits first without If-Match, then return a CONFLICT response")
+        void updateCategoryWithConflictTest() {
+            when(categoryService.updateCategory(anyInt(), any(CategoryDTO.class), isNull()))
+                    .thenThrow(new ObjectOptimisticLockingFailureException(Category.class, 1));
+
+            var response = categoryController.updateCategory(1, categoryDTO, null);
+
+            verify(categoryService, times(1)).updateCategory(anyInt(), any(CategoryDTO.class), isNull());
+            verifyNoMoreInteractions(categoryService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+            assertThat(response.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("patchCategory Test Suite")
+    class PatchCategoryTests {
+
+        private final ObjectNode patch = JsonNodeFactory.instance.objectNode().put("name", "Patched name");
+
+        @Test
+        @DisplayName("When a category is patched, then send NO_CONTENT with its new ETag")
+        void patchCategoryTest() {
+            when(categoryService.patchCategory(anyInt(), any(JsonNode.class), isNull())).thenReturn(version);
+
+            var response = categoryController.patchCategory(1, patch, null);
+
+            verify(categoryService, times(1)).patchCategory(1, patch, null);
+            verifyNoMoreInteractions(categoryService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+            assertThat(response.getHeaders().getETag()).isEqualTo(version.getEtag());
+        }
+
+        @Test
+        @DisplayName("When another edit commits first without If-Match, then send a CONFLICT response")
+        void patchCategoryWithConflictTest() {
+            when(categoryService.patchCategory(anyInt(), any(JsonNode.class), isNull()))
+                    .thenThrow(new ObjectOptimisticLockingFailureException(Category.class, 1));
+
+            var response = categoryController.patchCategory(1, patch, null);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        }
     }
 }
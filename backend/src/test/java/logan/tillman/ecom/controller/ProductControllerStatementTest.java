@@ -0,0 +1,131 @@
+package logan.tillman.ecom.controller;
+
+import jakarta.persistence.EntityManager;
+import logan.tillman.ecom.SqlStatementRecorder;
+import logan.tillman.ecom.config.QueryBudgetProperties;
+import logan.tillman.ecom.dao.CategoryRepository;
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.entity.Category;
+import logan.tillman.ecom.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Runs requests through the servlet filters, so with the test profile enforcing query budgets a request
+// that goes over its budget fails here instead of only being logged
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@ActiveProfiles(value = "test")
+public class ProductControllerStatementTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    QueryBudgetProperties queryBudget;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    private Product product;
+    private Product otherProduct;
+
+    @BeforeEach
+    void setup() {
+        var firstCategory = categoryRepository.save(Category.builder().name("First category").build());
+        var secondCategory = categoryRepository.save(Category.builder().name("Second category").build());
+
+        product = productRepository.save(Product.builder()
+                .title("Product title")
+                .categories(new LinkedHashSet<>(List.of(firstCategory, secondCategory)))
+                .build());
+        otherProduct = productRepository.save(Product.builder()
+                .title("Other product")
+                .categories(new LinkedHashSet<>(List.of(secondCategory)))
+                .build());
+
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementRecorder.reset();
+    }
+
+    @Test
+    @DisplayName("When a product is fetched, then stay within the endpoint's query budget")
+    void getProductBudgetTest() throws Exception {
+        mockMvc.perform(get("/products/{productId}", product.getProductId()))
+                .andExpect(status().isOk());
+
+        assertThat(SqlStatementRecorder.statements()).hasSizeLessThanOrEqualTo(queryBudget.budget("GET", "/products/{productId}"));
+    }
+
+    @Test
+    @DisplayName("When a product page is fetched, then stay within the endpoint's query budget")
+    void getProductsBudgetTest() throws Exception {
+        mockMvc.perform(get("/products").param("size", "20"))
+                .andExpect(status().isOk());
+
+        assertThat(SqlStatementRecorder.statements()).hasSizeLessThanOrEqualTo(queryBudget.budget("GET", "/products"));
+    }
+
+    @Test
+    @DisplayName("When only one bound of a release range is sent, then reject it without listing any products")
+    void getProductsReleasedBeforeTest() throws Exception {
+        mockMvc.perform(get("/products").param("releasedBefore", "2023-12-31T00:00:00Z"))
+                .andExpect(status().isBadRequest());
+
+        assertThat(SqlStatementRecorder.statements()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("When a search contains LIKE wildcards, then match them literally within the endpoint's query budget")
+    void searchProductsBudgetTest() throws Exception {
+        var discountedProduct = productRepository.save(Product.builder().title("50% off_today").build());
+        entityManager.flush();
+        SqlStatementRecorder.reset();
+
+        mockMvc.perform(get("/products/search").param("q", "%"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].productId").value(contains(discountedProduct.getProductId())));
+        mockMvc.perform(get("/products/search").param("q", "t_tle"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+
+        assertThat(SqlStatementRecorder.statements()).hasSizeLessThanOrEqualTo(
+                2 * queryBudget.budget("GET", "/products/search"));
+    }
+
+    @Test
+    @DisplayName("When several products are looked up, then stay within the endpoint's query budget")
+    void lookupProductsBudgetTest() throws Exception {
+        mockMvc.perform(post("/products/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + product.getProductId() + "," + otherProduct.getProductId() + "]"))
+                .andExpect(status().isOk());
+
+        assertThat(SqlStatementRecorder.statements()).hasSizeLessThanOrEqualTo(queryBudget.budget("POST", "/products/lookup"));
+    }
+}
@@ -1,6 +1,21 @@
 package logan.tillman.ecom.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import logan.tillman.ecom.dto.ProductBatchResultDTO;
 import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.dto.ProductFacetPageDTO;
+import logan.tillman.ecom.dto.ProductImportSummaryDTO;
+import logan.tillman.ecom.dto.ProductPageDTO;
+import logan.tillman.ecom.dto.ProductReleasePageDTO;
+import logan.tillman.ecom.dto.ProductSuggestionDTO;
+import logan.tillman.ecom.dto.ResourceVersionDTO;
+import logan.tillman.ecom.dto.VersionedProductDTO;
+import logan.tillman.ecom.entity.Product;
+import logan.tillman.ecom.service.ProductExportService;
+import logan.tillman.ecom.service.ProductImportService;
+import logan.tillman.ecom.service.ProductSearchService;
 import logan.tillman.ecom.service.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,9 +25,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.OffsetDateTime;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -24,6 +51,15 @@ public class ProductControllerTest {
     @Mock
     ProductService productService;
 
+    @Mock
+    ProductImportService productImportService;
+
+    @Mock
+    ProductExportService productExportService;
+
+    @Mock
+    ProductSearchService productSearchService;
+
     @InjectMocks
     ProductController productController;
 
@@ -76,31 +112,494 @@ public class ProductControllerTest {
     @DisplayName("getProduct Test Suite")
     class GetProductTests {
 
+        private final ResourceVersionDTO version = ResourceVersionDTO.builder()
+                .etag("\"p1-3-0\"")
+                .lastModified(1_700_000_000_000L)
+                .build();
+
         @Test
-        @DisplayName("When a product is fetched, then send it in an OK response")
+        @DisplayName("When a product is fetched, then send it in an OK response with its validators")
         void getProductTest() {
-            when(productService.getProduct(anyInt())).thenReturn(productDTO);
+            when(productService.getProductVersion(anyInt())).thenReturn(version);
+            when(productService.getProduct(1, version.getEtag()))
+                    .thenReturn(VersionedProductDTO.builder().product(productDTO).etag(version.getEtag()).build());
 
-            var response = productController.getProduct(1);
+            var response = new MockHttpServletResponse();
+            var entity = productController.getProduct(1, new ServletWebRequest(new MockHttpServletRequest("GET", "/products/1"), response));
 
-            verify(productService, times(1)).getProduct(anyInt());
+            verify(productService, times(1)).getProductVersion(anyInt());
+            verify(productService, times(1)).getProduct(1, version.getEtag());
             verifyNoMoreInteractions(productService);
 
-            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-            assertThat(response.getBody()).isEqualTo(productDTO);
+            assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(entity.getBody()).isEqualTo(productDTO);
+            assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(version.getEtag());
+            assertThat(response.getHeader(HttpHeaders.LAST_MODIFIED)).isNotNull();
+        }
+
+        @Test
+        @DisplayName("When the product served is at another version than the one queried, then tag the response with the served one")
+        void getProductAtOtherVersionTest() {
+            when(productService.getProductVersion(anyInt())).thenReturn(version);
+            when(productService.getProduct(1, version.getEtag()))
+                    .thenReturn(VersionedProductDTO.builder().product(productDTO).etag("\"p1-4-0\"").build());
+
+            var response = new MockHttpServletResponse();
+            var entity = productController.getProduct(1, new ServletWebRequest(new MockHttpServletRequest("GET", "/products/1"), response));
+
+            assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(entity.getBody()).isEqualTo(productDTO);
+            assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"p1-4-0\"");
+        }
+
+        @Test
+        @DisplayName("When the If-None-Match tag matches the copy served, then send NOT_MODIFIED")
+        void getProductNotModifiedTest() {
+            when(productService.getProductVersion(anyInt())).thenReturn(version);
+            when(productService.getProduct(1, version.getEtag()))
+                    .thenReturn(VersionedProductDTO.builder().product(productDTO).etag(version.getEtag()).build());
+
+            var request = new MockHttpServletRequest("GET", "/products/1");
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, version.getEtag());
+
+            var entity = productController.getProduct(1, new ServletWebRequest(request, new MockHttpServletResponse()));
+
+            verify(productService, times(1)).getProductVersion(anyInt());
+            verify(productService, times(1)).getProduct(1, version.getEtag());
+            verifyNoMoreInteractions(productService);
+
+            assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(entity.getBody()).isNull();
+        }
+
+        @Test
+        @DisplayName("When the If-None-Match tag is stale, then send the product in an OK response")
+        void getProductWithStaleTagTest() {
+            when(productService.getProductVersion(anyInt())).thenReturn(version);
+            when(productService.getProduct(1, version.getEtag()))
+                    .thenReturn(VersionedProductDTO.builder().product(productDTO).etag(version.getEtag()).build());
+
+            var request = new MockHttpServletRequest("GET", "/products/1");
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"p1-2-0\"");
+
+            var entity = productController.getProduct(1, new ServletWebRequest(request, new MockHttpServletResponse()));
+
+            verify(productService, times(1)).getProductVersion(anyInt());
+            verify(productService, times(1)).getProduct(1, version.getEtag());
+            verifyNoMoreInteractions(productService);
+
+            assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(entity.getBody()).isEqualTo(productDTO);
         }
 
         @Test
         @DisplayName("When the product is not found, then send a NOT_FOUND response")
         void getProductWithNullResponseTest() {
-            when(productService.getProduct(anyInt())).thenReturn(null);
+            when(productService.getProductVersion(anyInt())).thenReturn(null);
+
+            var entity = productController.getProduct(1,
+                    new ServletWebRequest(new MockHttpServletRequest("GET", "/products/1"), new MockHttpServletResponse()));
+
+            verify(productService, times(1)).getProductVersion(anyInt());
+            verifyNoMoreInteractions(productService);
+
+            assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+            assertThat(entity.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("batch Test Suite")
+    class BatchTests {
+
+        private final List<ProductBatchResultDTO> results = List.of(ProductBatchResultDTO.builder()
+                .index(0)
+                .productId(1)
+                .success(true)
+                .build());
+
+        @Test
+        @DisplayName("When a batch is created, then send the per-item results in an OK response")
+        void createProductsTest() {
+            when(productService.createProducts(anyList())).thenReturn(results);
+
+            var response = productController.createProducts(List.of(productDTO));
+
+            verify(productService, times(1)).createProducts(anyList());
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(results);
+        }
+
+        @Test
+        @DisplayName("When a batch is rejected, then send a BAD_REQUEST response")
+        void createProductsWithNullResponseTest() {
+            when(productService.createProducts(anyList())).thenReturn(null);
+
+            var response = productController.createProducts(List.of());
+
+            verify(productService, times(1)).createProducts(anyList());
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).isNull();
+        }
+
+        @Test
+        @DisplayName("When a batch is updated, then send the per-item results in an OK response")
+        void updateProductsTest() {
+            when(productService.updateProducts(anyList())).thenReturn(results);
+
+            var response = productController.updateProducts(List.of(productDTO));
+
+            verify(productService, times(1)).updateProducts(anyList());
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(results);
+        }
+
+        @Test
+        @DisplayName("When a batch update keeps conflicting after its retries, then send a CONFLICT response")
+        void updateProductsWithConflictTest() {
+            when(productService.updateProducts(anyList()))
+                    .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1));
+
+            var response = productController.updateProducts(List.of(productDTO));
+
+            verify(productService, times(1)).updateProducts(anyList());
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+            assertThat(response.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("importProducts Test Suite")
+    class ImportProductsTests {
+
+        @Test
+        @DisplayName("When products are imported, then send the summary in an OK response")
+        void importProductsTest() {
+            var summary = ProductImportSummaryDTO.builder()
+                    .processed(1)
+                    .succeeded(1)
+                    .failed(0)
+                    .chunks(1)
+                    .failures(List.of())
+                    .build();
+
+            when(productImportService.importProducts(any(InputStream.class))).thenReturn(summary);
+
+            var response = productController.importProducts(new ByteArrayInputStream(new byte[0]));
+
+            verify(productImportService, times(1)).importProducts(any(InputStream.class));
+            verifyNoMoreInteractions(productImportService);
+            verifyNoInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(summary);
+        }
+
+        @Test
+        @DisplayName("When the import stream cannot be read, then send a BAD_REQUEST response")
+        void importProductsWithNullResponseTest() {
+            when(productImportService.importProducts(any(InputStream.class))).thenReturn(null);
+
+            var response = productController.importProducts(new ByteArrayInputStream(new byte[0]));
+
+            verify(productImportService, times(1)).importProducts(any(InputStream.class));
+            verifyNoMoreInteractions(productImportService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("exportProducts Test Suite")
+    class ExportProductsTests {
+
+        @Test
+        @DisplayName("When products are exported, then stream them from the export service")
+        void exportProductsTest() throws IOException {
+            var response = productController.exportProducts("csv");
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getHeaders().getContentType()).isEqualTo(new MediaType("text", "csv"));
+            assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION)).contains("products.csv");
+
+            verifyNoInteractions(productExportService);
+
+            response.getBody().writeTo(new ByteArrayOutputStream());
+
+            verify(productExportService, times(1)).exportProducts(eq("csv"), any(OutputStream.class));
+            verifyNoMoreInteractions(productExportService);
+        }
+
+        @Test
+        @DisplayName("When the format is not supported, then send a BAD_REQUEST response")
+        void exportProductsWithUnsupportedFormatTest() {
+            var response = productController.exportProducts("xml");
+
+            verifyNoInteractions(productExportService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("getProductsReleasedBetween Test Suite")
+    class GetProductsReleasedBetweenTests {
+
+        private final OffsetDateTime releasedAfter = OffsetDateTime.parse("2023-01-01T00:00Z");
+        private final OffsetDateTime releasedBefore = OffsetDateTime.parse("2023-12-31T00:00Z");
+
+        @Test
+        @DisplayName("When products are released in the range, then send them in an OK response")
+        void getProductsReleasedBetweenTest() {
+            var releasePage = ProductReleasePageDTO.builder()
+                    .products(List.of(productDTO))
+                    .page(0)
+                    .size(20)
+                    .build();
+
+            when(productService.getProductsReleasedBetween(releasedAfter, releasedBefore, 0, 20)).thenReturn(releasePage);
+
+            var response = productController.getProductsReleasedBetween(releasedAfter, releasedBefore, 0, 20);
+
+            verify(productService, times(1)).getProductsReleasedBetween(releasedAfter, releasedBefore, 0, 20);
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(releasePage);
+        }
+
+        @Test
+        @DisplayName("When only releasedBefore is given, then send a BAD_REQUEST response")
+        void getProductsReleasedBeforeTest() {
+            when(productService.getProductsReleasedBetween(null, releasedBefore, 0, 20)).thenReturn(null);
+
+            var response = productController.getProductsReleasedBefore(releasedBefore, 0, 20);
+
+            verify(productService, times(1)).getProductsReleasedBetween(null, releasedBefore, 0, 20);
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).isNull();
+        }
+
+        @Test
+        @DisplayName("When the range is rejected, then send a BAD_REQUEST response")
+        void getProductsReleasedBetweenWithNullResponseTest() {
+            when(productService.getProductsReleasedBetween(releasedBefore, releasedAfter, 0, 20)).thenReturn(null);
+
+            var response = productController.getProductsReleasedBetween(releasedBefore, releasedAfter, 0, 20);
+
+            verify(productService, times(1)).getProductsReleasedBetween(releasedBefore, releasedAfter, 0, 20);
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("getProductsInCategories Test Suite")
+    class GetProductsInCategoriesTests {
+
+        @Test
+        @DisplayName("When products are filtered by category, then send the page and facets in an OK response")
+        void getProductsInCategoriesTest() {
+            var page = ProductFacetPageDTO.builder()
+                    .products(List.of(productDTO))
+                    .page(0)
+                    .size(20)
+                    .total(1)
+                    .facets(List.of())
+                    .build();
+
+            when(productService.getProductsInCategories(List.of(1, 2), "all", 0, 20)).thenReturn(page);
+
+            var response = productController.getProductsInCategories(List.of(1, 2), "all", 0, 20);
+
+            verify(productService, times(1)).getProductsInCategories(List.of(1, 2), "all", 0, 20);
+            verifyNoMoreInteractions(productService);
 
-            var response = productController.getProduct(1);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(page);
+        }
+
+        @Test
+        @DisplayName("When the filter is rejected, then send a BAD_REQUEST response")
+        void getProductsInCategoriesWithNullResponseTest() {
+            when(productService.getProductsInCategories(List.of(1), "none", 0, 20)).thenReturn(null);
+
+            var response = productController.getProductsInCategories(List.of(1), "none", 0, 20);
 
-            verify(productService, times(1)).getProduct(anyInt());
+            verify(productService, times(1)).getProductsInCategories(List.of(1), "none", 0, 20);
             verifyNoMoreInteractions(productService);
 
-            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("lookupProducts Test Suite")
+    class LookupProductsTests {
+
+        @Test
+        @DisplayName("When products are looked up by id, then send them in an OK response")
+        void lookupProductsTest() {
+            when(productService.getProductsById(List.of(1, 2))).thenReturn(List.of(productDTO));
+
+            var response = productController.lookupProducts(List.of(1, 2));
+
+            verify(productService, times(1)).getProductsById(List.of(1, 2));
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).containsExactly(productDTO);
+        }
+
+        @Test
+        @DisplayName("When products are looked up by the ids query parameter, then send them in an OK response")
+        void getProductsByIdTest() {
+            when(productService.getProductsById(List.of(1))).thenReturn(List.of(productDTO));
+
+            var response = productController.getProductsById(List.of(1));
+
+            verify(productService, times(1)).getProductsById(List.of(1));
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).containsExactly(productDTO);
+        }
+
+        @Test
+        @DisplayName("When the ids are rejected, then send a BAD_REQUEST response")
+        void lookupProductsWithNullResponseTest() {
+            when(productService.getProductsById(List.of())).thenReturn(null);
+
+            var response = productController.lookupProducts(List.of());
+
+            verify(productService, times(1)).getProductsById(List.of());
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("searchProducts Test Suite")
+    class SearchProductsTests {
+
+        @Test
+        @DisplayName("When products match the query, then send them in an OK response")
+        void searchProductsTest() {
+            when(productSearchService.searchProducts("cool", 0, 20)).thenReturn(List.of(productDTO));
+
+            var response = productController.searchProducts("cool", 0, 20);
+
+            verify(productSearchService, times(1)).searchProducts("cool", 0, 20);
+            verifyNoMoreInteractions(productSearchService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).containsExactly(productDTO);
+        }
+
+        @Test
+        @DisplayName("When the query is rejected, then send a BAD_REQUEST response")
+        void searchProductsWithNullResponseTest() {
+            when(productSearchService.searchProducts("", 0, 20)).thenReturn(null);
+
+            var response = productController.searchProducts("", 0, 20);
+
+            verify(productSearchService, times(1)).searchProducts("", 0, 20);
+            verifyNoMoreInteractions(productSearchService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("suggestProducts Test Suite")
+    class SuggestProductsTests {
+
+        @Test
+        @DisplayName("When titles match the prefix, then send the suggestions in an OK response")
+        void suggestProductsTest() {
+            var suggestions = List.of(ProductSuggestionDTO.builder()
+                    .productId(productDTO.getProductId())
+                    .title(productDTO.getTitle())
+                    .build());
+
+            when(productService.suggestProducts("a ran", 10)).thenReturn(suggestions);
+
+            var response = productController.suggestProducts("a ran", 10);
+
+            verify(productService, times(1)).suggestProducts("a ran", 10);
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(suggestions);
+        }
+
+        @Test
+        @DisplayName("When the prefix is rejected, then send a BAD_REQUEST response")
+        void suggestProductsWithNullResponseTest() {
+            when(productService.suggestProducts("", 10)).thenReturn(null);
+
+            var response = productController.suggestProducts("", 10);
+
+            verify(productService, times(1)).suggestProducts("", 10);
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("getProducts Test Suite")
+    class GetProductsTests {
+
+        @Test
+        @DisplayName("When a product page is fetched, then send it in an OK response")
+        void getProductsTest() {
+            var page = ProductPageDTO.builder()
+                    .products(List.of(productDTO))
+                    .nextCursor("cursor")
+                    .build();
+
+            when(productService.getProducts(any(), anyInt())).thenReturn(page);
+
+            var response = productController.getProducts(null, 20);
+
+            verify(productService, times(1)).getProducts(any(), anyInt());
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(page);
+        }
+
+        @Test
+        @DisplayName("When the page request is invalid, then send a BAD_REQUEST response")
+        void getProductsWithNullResponseTest() {
+            when(productService.getProducts(any(), anyInt())).thenReturn(null);
+
+            var response = productController.getProducts("bad", 20);
+
+            verify(productService, times(1)).getProducts(any(), anyInt());
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
             assertThat(response.getBody()).isNull();
         }
     }
@@ -110,31 +609,106 @@ public class ProductControllerTest {
     class UpdateProductTests {
 
         @Test
-        @DisplayName("When a product is updated, then return it in an OK response")
+        @DisplayName("When a product is updated, then return it in an OK response with its new ETag")
         void updateProductTest() {
-            when(productService.updateProduct(anyInt(), any(ProductDTO.class))).thenReturn(productDTO);
+            when(productService.updateProduct(anyInt(), any(ProductDTO.class), isNull()))
+                    .thenReturn(VersionedProductDTO.builder().product(productDTO).etag("\"p1-4-0\"").build());
 
-            var response = productController.updateProduct(1, productDTO);
+            var response = productController.updateProduct(1, productDTO, null);
 
-            verify(productService, times(1)).updateProduct(anyInt(), any(ProductDTO.class));
+            verify(productService, times(1)).updateProduct(anyInt(), any(ProductDTO.class), isNull());
             verifyNoMoreInteractions(productService);
 
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
             assertThat(response.getBody()).isEqualTo(productDTO);
+            assertThat(response.getHeaders().getETag()).isEqualTo("\"p1-4-0\"");
         }
 
         @Test
         @DisplayName("When a product fails to update, then return a BAD_REQUEST response")
         void updateProductWithNullResponseTest() {
-            when(productService.updateProduct(anyInt(), any(ProductDTO.class))).thenReturn(null);
+            when(productService.updateProduct(anyInt(), any(ProductDTO.class), isNull())).thenReturn(null);
 
-            var response = productController.updateProduct(1, productDTO);
+            var response = productController.updateProduct(1, productDTO, null);
 
-            verify(productService, times(1)).updateProduct(anyInt(), any(ProductDTO.class));
+            verify(productService, times(1)).updateProduct(anyInt(), any(ProductDTO.class), isNull());
             verifyNoMoreInteractions(productService);
 
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
             assertThat(response.getBody()).isNull();
         }
+
+        @Test
+        @DisplayName("When the If-Match tag is stale, then return a PRECONDITION_FAILED response")
+        void updateProductWithStaleIfMatchTest() {
+            when(productService.updateProduct(anyInt(), any(ProductDTO.class), anyString()))
+                    .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1));
+
+            var response = productController.updateProduct(1, productDTO, "\"p1-3-0\"");
+
+            verify(productService, times(1)).updateProduct(1, productDTO, "\"p1-3-0\"");
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+            assertThat(response.getBody()).isNull();
+        }
+
+        @Test
+        @DisplayName("When another edit commits first without If-Match, then return a CONFLICT response")
+        void updateProductWithConflictTest() {
+            when(productService.updateProduct(anyInt(), any(ProductDTO.class), isNull()))
+                    .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1));
+
+            var response = productController.updateProduct(1, productDTO, null);
+
+            verify(productService, times(1)).updateProduct(anyInt(), any(ProductDTO.class), isNull());
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+            assertThat(response.getBody()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("patchProduct Test Suite")
+    class PatchProductTests {
+
+        private final ObjectNode patch = JsonNodeFactory.instance.objectNode().put("title", "Patched title");
+
+        @Test
+        @DisplayName("When a product is patched, then send NO_CONTENT with its new ETag")
+        void patchProductTest() {
+            when(productService.patchProduct(anyInt(), any(JsonNode.class), isNull()))
+                    .thenReturn(ResourceVersionDTO.builder().etag("\"p1-5-0\"").lastModified(-1).build());
+
+            var response = productController.patchProduct(1, patch, null);
+
+            verify(productService, times(1)).patchProduct(1, patch, null);
+            verifyNoMoreInteractions(productService);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+            assertThat(response.getHeaders().getETag()).isEqualTo("\"p1-5-0\"");
+        }
+
+        @Test
+        @DisplayName("When the patch is rejected, then send a BAD_REQUEST response")
+        void patchProductWithNullResponseTest() {
+            when(productService.patchProduct(anyInt(), any(JsonNode.class), isNull())).thenReturn(null);
+
+            var response = productController.patchProduct(1, patch, null);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        }
+
+        @Test
+        @DisplayName("When the If-Match tag is stale, then send a PRECONDITION_FAILED response")
+        void patchProductWithStaleIfMatchTest() {
+            when(productService.patchProduct(anyInt(), any(JsonNode.class), anyString()))
+                    .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1));
+
+            var response = productController.patchProduct(1, patch, "\"p1-4-0\"");
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        }
     }
 }
@@ -0,0 +1,122 @@
+package logan.tillman.ecom.index;
+
+import logan.tillman.ecom.dao.CategoryMembership;
+import logan.tillman.ecom.dao.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CategoryMembershipIndexTest {
+
+    @Mock
+    ProductRepository productRepository;
+
+    CategoryMembershipIndex categoryMembershipIndex;
+
+    @BeforeEach
+    void setup() {
+        categoryMembershipIndex = new CategoryMembershipIndex(productRepository);
+
+        when(productRepository.streamCategoryMemberships()).thenReturn(Stream.of(
+                membership(1, 10),
+                membership(1, 11),
+                membership(1, 12),
+                membership(2, 11),
+                membership(2, 13)));
+
+        categoryMembershipIndex.load();
+    }
+
+    @Test
+    @DisplayName("When the index is loaded, then count the products of each category")
+    void countTest() {
+        assertThat(categoryMembershipIndex.count(1)).isEqualTo(3);
+        assertThat(categoryMembershipIndex.count(2)).isEqualTo(2);
+        assertThat(categoryMembershipIndex.count(3)).isZero();
+    }
+
+    @Test
+    @DisplayName("When several categories are passed, then intersect or union their products")
+    void membersTest() {
+        assertThat(categoryMembershipIndex.members(List.of(1, 2), true).toArray()).containsExactly(11);
+        assertThat(categoryMembershipIndex.members(List.of(1, 2), false).toArray()).containsExactly(10, 11, 12, 13);
+        assertThat(categoryMembershipIndex.members(List.of(1, 3), true).isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("When categories change while the index loads, then keep the change over the loaded memberships")
+    void setCategoriesDuringLoadTest() {
+        when(productRepository.streamCategoryMemberships()).thenAnswer(invocation -> {
+            // Streamed before the change commits, so the loaded rows still have product 10 in category 1
+            categoryMembershipIndex.setCategories(10, List.of(2));
+            return Stream.of(membership(1, 10), membership(2, 11));
+        });
+
+        categoryMembershipIndex.load();
+
+        assertThat(categoryMembershipIndex.members(List.of(1), true).toArray()).isEmpty();
+        assertThat(categoryMembershipIndex.members(List.of(2), true).toArray()).containsExactly(10, 11);
+    }
+
+    @Test
+    @DisplayName("When members are returned, then changing them leaves the index untouched")
+    void membersCopyTest() {
+        categoryMembershipIndex.members(List.of(1), true).clear();
+
+        assertThat(categoryMembershipIndex.count(1)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("When a product's categories change, then move it between the bitmaps")
+    void setCategoriesTest() {
+        categoryMembershipIndex.setCategories(11, List.of(2, 3));
+
+        assertThat(categoryMembershipIndex.members(List.of(1), true).toArray()).containsExactly(10, 12);
+        assertThat(categoryMembershipIndex.members(List.of(3), true).toArray()).containsExactly(11);
+        assertThat(categoryMembershipIndex.count(2)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("When facets are counted, then count the given products in every category that has any")
+    void facetCountsTest() {
+        var facets = categoryMembershipIndex.facetCounts(RoaringBitmap.bitmapOf(11, 12));
+
+        assertThat(facets).containsExactly(entry(1, 2), entry(2, 1));
+    }
+
+    @Test
+    @DisplayName("When a page is requested, then return the ids at that rank")
+    void pageTest() {
+        var productIds = RoaringBitmap.bitmapOf(3, 5, 7, 9, 11);
+
+        assertThat(CategoryMembershipIndex.page(productIds, 0, 2)).containsExactly(3, 5);
+        assertThat(CategoryMembershipIndex.page(productIds, 4, 2)).containsExactly(11);
+        assertThat(CategoryMembershipIndex.page(productIds, 5, 2)).isEmpty();
+    }
+
+    private static CategoryMembership membership(Integer categoryId, Integer productId) {
+        return new CategoryMembership() {
+            @Override
+            public Integer getCategoryId() {
+                return categoryId;
+            }
+
+            @Override
+            public Integer getProductId() {
+                return productId;
+            }
+        };
+    }
+}
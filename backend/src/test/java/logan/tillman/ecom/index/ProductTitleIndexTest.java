@@ -0,0 +1,153 @@
+package logan.tillman.ecom.index;
+
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.dao.ProductTitle;
+import logan.tillman.ecom.dto.ProductSuggestionDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductTitleIndexTest {
+
+    @Mock
+    ProductRepository productRepository;
+
+    ProductTitleIndex productTitleIndex;
+
+    @BeforeEach
+    void setup() {
+        productTitleIndex = new ProductTitleIndex(productRepository, 100, 100, Runnable::run);
+
+        when(productRepository.streamTitles()).thenReturn(Stream.of(
+                title(1, "Red Running Shoes"),
+                title(2, "Running Shorts"),
+                title(3, "Blue Rain Jacket"),
+                title(4, "Café Crème Mug")));
+
+        productTitleIndex.load();
+    }
+
+    @Test
+    @DisplayName("When a prefix matches words in several titles, then suggest them shortest first")
+    void suggestTest() {
+        var suggestions = productTitleIndex.suggest("run", 10);
+
+        assertThat(suggestions)
+                .extracting(ProductSuggestionDTO::getProductId)
+                .containsExactly(2, 1);
+    }
+
+    @Test
+    @DisplayName("When several words are typed, then every word has to prefix a word of the title")
+    void suggestWithSeveralWordsTest() {
+        assertThat(productTitleIndex.suggest("shoes RED", 10))
+                .extracting(ProductSuggestionDTO::getProductId)
+                .containsExactly(1);
+        assertThat(productTitleIndex.suggest("caf cr", 10))
+                .extracting(ProductSuggestionDTO::getTitle)
+                .containsExactly("Café Crème Mug");
+        assertThat(productTitleIndex.suggest("running jacket", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("When a title is written, then suggest the new title instead of the indexed one")
+    void putTest() {
+        productTitleIndex.put(2, "Trail Shorts");
+        productTitleIndex.put(5, "Running Cap");
+
+        assertThat(productTitleIndex.suggest("run", 10))
+                .extracting(ProductSuggestionDTO::getProductId)
+                .containsExactly(5, 1);
+        assertThat(productTitleIndex.suggest("trail", 10))
+                .extracting(ProductSuggestionDTO::getTitle)
+                .containsExactly("Trail Shorts");
+    }
+
+    @Test
+    @DisplayName("When a recent title is written again, then stop suggesting it for the words it lost")
+    void putAgainTest() {
+        productTitleIndex.put(5, "Running Cap");
+        productTitleIndex.put(5, "Wool Cap");
+
+        assertThat(productTitleIndex.suggest("run", 10))
+                .extracting(ProductSuggestionDTO::getProductId)
+                .containsExactly(2, 1);
+        assertThat(productTitleIndex.suggest("cap w", 10))
+                .extracting(ProductSuggestionDTO::getTitle)
+                .containsExactly("Wool Cap");
+    }
+
+    @Test
+    @DisplayName("When recent titles are folded into a new snapshot, then keep serving the same suggestions")
+    void rebuildTest() {
+        productTitleIndex.put(2, "Trail Shorts");
+        productTitleIndex.put(5, "Running Cap");
+
+        productTitleIndex.rebuild();
+
+        assertThat(productTitleIndex.size()).isEqualTo(5);
+        assertThat(productTitleIndex.suggest("run", 10))
+                .extracting(ProductSuggestionDTO::getProductId)
+                .containsExactly(5, 1);
+    }
+
+    @Test
+    @DisplayName("When recent titles reach the threshold, then queue one rebuild at a time on the executor")
+    void rebuildInBackgroundTest() {
+        var queued = new ArrayList<Runnable>();
+        productTitleIndex = new ProductTitleIndex(productRepository, 100, 2, queued::add);
+
+        productTitleIndex.put(5, "Running Cap");
+        assertThat(queued).isEmpty();
+
+        productTitleIndex.put(6, "Rain Boots");
+        productTitleIndex.put(7, "Trail Shoes");
+        assertThat(queued).hasSize(1);
+
+        queued.remove(0).run();
+        assertThat(queued).isEmpty();
+
+        productTitleIndex.put(8, "Wool Socks");
+        productTitleIndex.put(9, "Sun Hat");
+        assertThat(queued).hasSize(1);
+
+        queued.remove(0).run();
+
+        assertThat(queued).isEmpty();
+        assertThat(productTitleIndex.size()).isEqualTo(5);
+        assertThat(productTitleIndex.suggest("r", 10))
+                .extracting(ProductSuggestionDTO::getProductId)
+                .containsExactly(6, 5);
+    }
+
+    @Test
+    @DisplayName("When the limit is reached, then stop collecting suggestions")
+    void suggestWithLimitTest() {
+        assertThat(productTitleIndex.suggest("r", 1)).hasSize(1);
+        assertThat(productTitleIndex.suggest("", 10)).isEmpty();
+    }
+
+    private static ProductTitle title(Integer productId, String title) {
+        return new ProductTitle() {
+            @Override
+            public Integer getProductId() {
+                return productId;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+        };
+    }
+}
@@ -1,5 +1,7 @@
 package logan.tillman.ecom.mapper;
 
+import logan.tillman.ecom.dao.ProductSummary;
+import logan.tillman.ecom.dto.CategoryDTO;
 import logan.tillman.ecom.dto.ProductDTO;
 import logan.tillman.ecom.entity.Category;
 import logan.tillman.ecom.entity.Product;
@@ -13,6 +15,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -38,7 +41,7 @@ public class DtoMapperTest {
                 .title("Product title")
                 .description("A random description")
                 .releaseDate(OffsetDateTime.now())
-                .categories(List.of(category))
+                .categories(Set.of(category))
                 .build();
     }
 
@@ -59,6 +62,41 @@ public class DtoMapperTest {
                 .hasFieldOrPropertyWithValue("categoryId", category.getCategoryId());
     }
 
+    @Test
+    @DisplayName("When passed a product summary, then return a DTO without categories")
+    void mapToProductDtoFromSummaryTest() {
+        var productSummary = new ProductSummary() {
+            @Override
+            public Integer getProductId() {
+                return product.getProductId();
+            }
+
+            @Override
+            public String getTitle() {
+                return product.getTitle();
+            }
+
+            @Override
+            public String getDescription() {
+                return product.getDescription();
+            }
+
+            @Override
+            public OffsetDateTime getReleaseDate() {
+                return product.getReleaseDate();
+            }
+        };
+
+        var productDTO = dtoMapper.mapToProductDTO(productSummary);
+
+        assertThat(productDTO)
+                .hasFieldOrPropertyWithValue("productId", product.getProductId())
+                .hasFieldOrPropertyWithValue("title", product.getTitle())
+                .hasFieldOrPropertyWithValue("description", product.getDescription())
+                .hasFieldOrPropertyWithValue("releaseDate", product.getReleaseDate())
+                .hasFieldOrPropertyWithValue("categories", null);
+    }
+
     @Test
     @DisplayName("When passed a category, then return an equivalent DTO")
     void mapToCategoryDtoTest() {
@@ -68,4 +106,31 @@ public class DtoMapperTest {
                 .hasFieldOrPropertyWithValue("name", category.getName())
                 .hasFieldOrPropertyWithValue("categoryId", category.getCategoryId());
     }
+
+    @Test
+    @DisplayName("When passed a category with products, then map its products without their categories")
+    void mapToCategoryDtoWithProductsTest() {
+        category.setProducts(List.of(product));
+
+        var categoryDTO = dtoMapper.mapToCategoryDTO(category);
+
+        assertThat(categoryDTO)
+                .extracting(CategoryDTO::getProducts)
+                .asList()
+                .first()
+                .hasFieldOrPropertyWithValue("productId", product.getProductId())
+                .hasFieldOrPropertyWithValue("categories", null);
+    }
+
+    @Test
+    @DisplayName("When mapping a cyclic graph, then leave the entities untouched")
+    void mapCyclicGraphWithoutMutationTest() {
+        category.setProducts(List.of(product));
+
+        dtoMapper.mapToProductDTO(product);
+        dtoMapper.mapToCategoryDTO(category);
+
+        assertThat(product.getCategories()).containsExactly(category);
+        assertThat(category.getProducts()).containsExactly(product);
+    }
 }
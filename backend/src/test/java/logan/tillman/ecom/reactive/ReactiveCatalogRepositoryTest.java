@@ -0,0 +1,132 @@
+package logan.tillman.ecom.reactive;
+
+import io.r2dbc.spi.ConnectionFactories;
+import logan.tillman.ecom.dto.CategoryDTO;
+import logan.tillman.ecom.dto.ProductDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the raw SQL against the tables from database/*.sql on an in-memory H2 database
+public class ReactiveCatalogRepositoryTest {
+
+    private static final String[] SCHEMA = {
+            "create table category (category_id serial primary key, name varchar(100) not null)",
+            "create table product (product_id serial primary key, title varchar(100) not null, " +
+                    "description varchar(255) null, release_date timestamp with time zone null)",
+            "create table category_product (category_id integer references category(category_id), " +
+                    "product_id integer references product(product_id), primary key(category_id, product_id))",
+            "insert into category (category_id, name) values (1, 'Books'), (2, 'Games'), (3, 'Music')",
+            "insert into product (product_id, title) values (1, 'First product'), (2, 'Second product'), " +
+                    "(3, 'Third product')",
+            "insert into category_product (category_id, product_id) values (2, 1), (1, 1), (3, 2)"
+    };
+
+    private DatabaseClient databaseClient;
+
+    private ReactiveCatalogRepository reactiveCatalogRepository;
+
+    @BeforeEach
+    void setup() {
+        databaseClient = DatabaseClient.create(ConnectionFactories.get(
+                "r2dbc:h2:mem:///reactive-catalog;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"));
+        reactiveCatalogRepository = new ReactiveCatalogRepository(databaseClient);
+
+        Flux.fromArray(SCHEMA)
+                .concatMap(sql -> databaseClient.sql(sql).then())
+                .blockLast();
+    }
+
+    @AfterEach
+    void teardown() {
+        databaseClient.sql("drop all objects").then().block();
+    }
+
+    @Nested
+    @DisplayName("findProduct Test Suite")
+    class FindProductTests {
+
+        @Test
+        @DisplayName("When the product has several categories, then fold them into one product in id order")
+        void findProductTest() {
+            StepVerifier.create(reactiveCatalogRepository.findProduct(1))
+                    .assertNext(product -> {
+                        assertThat(product.getTitle()).isEqualTo("First product");
+                        assertThat(product.getCategories()).extracting(CategoryDTO::getCategoryId).containsExactly(1, 2);
+                        assertThat(product.getCategories()).extracting(CategoryDTO::getName).containsExactly("Books", "Games");
+                    })
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("When the product has no categories, then return it with an empty category list")
+        void findProductWithNoCategoriesTest() {
+            StepVerifier.create(reactiveCatalogRepository.findProduct(3))
+                    .assertNext(product -> assertThat(product.getCategories()).isEmpty())
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("When the product does not exist, then complete empty")
+        void findProductWithNoProductTest() {
+            StepVerifier.create(reactiveCatalogRepository.findProduct(4))
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    @DisplayName("findProductsAfter Test Suite")
+    class FindProductsAfterTests {
+
+        @Test
+        @DisplayName("When products have several categories, then the limit counts products rather than joined rows")
+        void findProductsAfterTest() {
+            StepVerifier.create(reactiveCatalogRepository.findProductsAfter(0, 2).collectList())
+                    .assertNext(products -> {
+                        assertThat(products).extracting(ProductDTO::getProductId).containsExactly(1, 2);
+                        assertThat(products.get(0).getCategories()).hasSize(2);
+                        assertThat(products.get(1).getCategories()).extracting(CategoryDTO::getName).containsExactly("Music");
+                    })
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("When starting after a product, then only the later products are returned")
+        void findProductsAfterCursorTest() {
+            StepVerifier.create(reactiveCatalogRepository.findProductsAfter(1, 5).collectList())
+                    .assertNext(products -> {
+                        assertThat(products).extracting(ProductDTO::getProductId).containsExactly(2, 3);
+                        assertThat(products.get(1).getCategories()).isEmpty();
+                    })
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    @DisplayName("findCategories Test Suite")
+    class FindCategoriesTests {
+
+        @Test
+        @DisplayName("When a page is requested, then return that slice in id order")
+        void findCategoriesTest() {
+            StepVerifier.create(reactiveCatalogRepository.findCategories(1, 1))
+                    .assertNext(category -> assertThat(category.getName()).isEqualTo("Games"))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("When every category is requested, then return them all in id order")
+        void findAllCategoriesTest() {
+            StepVerifier.create(reactiveCatalogRepository.findAllCategories().map(CategoryDTO::getCategoryId))
+                    .expectNext(1, 2, 3)
+                    .verifyComplete();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package logan.tillman.ecom.reactive;
+
+import logan.tillman.ecom.dto.CategoryDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveCategoryControllerTest {
+
+    @Mock
+    ReactiveCatalogRepository reactiveCatalogRepository;
+
+    @InjectMocks
+    ReactiveCategoryController reactiveCategoryController;
+
+    @Test
+    @DisplayName("When a page of categories is fetched, then emit it in an OK response")
+    void getCategoriesTest() {
+        var categoryDTO = CategoryDTO.builder().categoryId(1).name("A random category").build();
+
+        when(reactiveCatalogRepository.findCategories(40L, 20)).thenReturn(Flux.just(categoryDTO));
+
+        StepVerifier.create(reactiveCategoryController.getCategories(2, 20))
+                .assertNext(response -> {
+                    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+                    assertThat(response.getBody()).containsExactly(categoryDTO);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When there are no categories, then emit a NOT_FOUND response")
+    void getCategoriesWithNoCategoriesTest() {
+        when(reactiveCatalogRepository.findAllCategories()).thenReturn(Flux.empty());
+
+        StepVerifier.create(reactiveCategoryController.getCategories(null, 20))
+                .assertNext(response -> assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the page size is too large, then emit a BAD_REQUEST response")
+    void getCategoriesWithOversizedPageTest() {
+        StepVerifier.create(reactiveCategoryController.getCategories(0, 500))
+                .assertNext(response -> assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST))
+                .verifyComplete();
+
+        verifyNoInteractions(reactiveCatalogRepository);
+    }
+}
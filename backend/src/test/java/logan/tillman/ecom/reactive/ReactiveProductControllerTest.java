@@ -0,0 +1,116 @@
+package logan.tillman.ecom.reactive;
+
+import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.mapper.CursorCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.LinkedMultiValueMap;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveProductControllerTest {
+
+    @Mock
+    ReactiveCatalogRepository reactiveCatalogRepository;
+
+    @InjectMocks
+    ReactiveProductController reactiveProductController;
+
+    private ProductDTO productDTO;
+
+    @BeforeEach
+    void setup() {
+        productDTO = ProductDTO.builder()
+                .productId(1)
+                .title("A random product")
+                .build();
+    }
+
+    @Nested
+    @DisplayName("getProduct Test Suite")
+    class GetProductTests {
+
+        @Test
+        @DisplayName("When the product exists, then emit it in an OK response")
+        void getProductTest() {
+            when(reactiveCatalogRepository.findProduct(1)).thenReturn(Mono.just(productDTO));
+
+            StepVerifier.create(reactiveProductController.getProduct(1))
+                    .assertNext(response -> {
+                        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+                        assertThat(response.getBody()).isEqualTo(productDTO);
+                    })
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("When the product does not exist, then emit a NOT_FOUND response")
+        void getProductWithNoProductTest() {
+            when(reactiveCatalogRepository.findProduct(1)).thenReturn(Mono.empty());
+
+            StepVerifier.create(reactiveProductController.getProduct(1))
+                    .assertNext(response -> assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND))
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    @DisplayName("getProducts Test Suite")
+    class GetProductsTests {
+
+        @Test
+        @DisplayName("When more products exist than the page size, then return a cursor for the next page")
+        void getProductsWithNextPageTest() {
+            var nextProductDTO = ProductDTO.builder().productId(2).build();
+
+            when(reactiveCatalogRepository.findProductsAfter(0, 2)).thenReturn(Flux.just(productDTO, nextProductDTO));
+
+            StepVerifier.create(reactiveProductController.getProducts(null, 1, new LinkedMultiValueMap<>()))
+                    .assertNext(response -> {
+                        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+                        assertThat(response.getBody().getProducts()).containsExactly(productDTO);
+                        assertThat(CursorCodec.decode(response.getBody().getNextCursor())).isEqualTo(1);
+                    })
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("When the cursor cannot be decoded, then emit a BAD_REQUEST response without querying")
+        void getProductsWithInvalidCursorTest() {
+            StepVerifier.create(reactiveProductController.getProducts("not a cursor", 20, new LinkedMultiValueMap<>()))
+                    .assertNext(response -> assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST))
+                    .verifyComplete();
+
+            verifyNoInteractions(reactiveCatalogRepository);
+        }
+
+        @Test
+        @DisplayName("When a listing filter is sent, then emit a BAD_REQUEST response instead of the unfiltered listing")
+        void getProductsWithFilterTest() {
+            for (var filter : List.of("category", "ids", "releasedAfter", "releasedBefore")) {
+                var params = new LinkedMultiValueMap<String, String>();
+                params.add(filter, "1");
+
+                StepVerifier.create(reactiveProductController.getProducts(null, 20, params))
+                        .assertNext(response -> assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST))
+                        .verifyComplete();
+            }
+
+            verifyNoInteractions(reactiveCatalogRepository);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package logan.tillman.ecom.service;
+
+import jakarta.persistence.EntityManager;
+import logan.tillman.ecom.SqlStatementRecorder;
+import logan.tillman.ecom.cache.CategoryResponseSnapshot;
+import logan.tillman.ecom.dao.CategoryRepository;
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.entity.Category;
+import logan.tillman.ecom.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@ActiveProfiles(value = "test")
+public class CategoryServiceStatementTest {
+
+    @Autowired
+    CategoryService categoryService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    CategoryResponseSnapshot categoryResponseSnapshot;
+
+    private Category category;
+
+    @BeforeEach
+    void setup() {
+        category = categoryRepository.save(Category.builder().name("Category name").build());
+
+        for (var i = 0; i < 3; i++) {
+            productRepository.save(Product.builder()
+                    .title("Product " + i)
+                    .categories(new LinkedHashSet<>(List.of(category)))
+                    .build());
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        categoryResponseSnapshot.nativeCache().invalidateAll();
+        SqlStatementRecorder.reset();
+    }
+
+    @Test
+    @DisplayName("When a category is fetched, then load it with its products in one statement")
+    void getCategoryStatementCountTest() {
+        var foundCategory = categoryService.getCategory(category.getCategoryId());
+
+        assertThat(SqlStatementRecorder.statements()).hasSize(1);
+        assertThat(foundCategory.getProducts()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("When all categories are fetched, then only select the category projection")
+    void getAllCategoriesStatementCountTest() {
+        var snapshot = categoryService.getAllCategoriesSnapshot();
+
+        assertThat(SqlStatementRecorder.statements()).hasSize(1);
+        assertThat(snapshot.count()).isPositive();
+    }
+
+    @Test
+    @DisplayName("When a category page with products is fetched, then select the page ids and then the categories with products")
+    void getCategoriesWithProductsStatementCountTest() {
+        var foundCategories = categoryService.getCategories(0, 20, true);
+
+        assertThat(SqlStatementRecorder.statements()).hasSize(2);
+        assertThat(foundCategories).isNotEmpty();
+    }
+}
@@ -1,10 +1,19 @@
 package logan.tillman.ecom.service;
 
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import logan.tillman.ecom.cache.CategoryResponseSnapshot;
+import logan.tillman.ecom.cache.ProductCache;
 import logan.tillman.ecom.dao.CategoryRepository;
+import logan.tillman.ecom.dao.CategorySummary;
+import logan.tillman.ecom.dao.CategoryVersion;
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.dao.ProductSummary;
+import logan.tillman.ecom.dao.TableVersion;
 import logan.tillman.ecom.dto.CategoryDTO;
 import logan.tillman.ecom.dto.ProductDTO;
 import logan.tillman.ecom.entity.Category;
 import logan.tillman.ecom.entity.Product;
+import logan.tillman.ecom.index.CategoryMembershipIndex;
 import logan.tillman.ecom.mapper.DtoMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,12 +23,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.time.OffsetDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +48,18 @@ public class CategoryServiceTest {
     @Mock
     DtoMapper dtoMapper;
 
+    @Mock
+    ProductCache productCache;
+
+    @Mock
+    CategoryResponseSnapshot categoryResponseSnapshot;
+
+    @Mock
+    ProductRepository productRepository;
+
+    @Mock
+    CategoryMembershipIndex categoryMembershipIndex;
+
     @InjectMocks
     CategoryService categoryService;
 
@@ -38,6 +67,7 @@ public class CategoryServiceTest {
     private ProductDTO productDTO;
     private Category category;
     private CategoryDTO categoryDTO;
+    private CategorySummary categorySummary;
 
     @BeforeEach
     void setup() {
@@ -68,6 +98,18 @@ public class CategoryServiceTest {
                 .categoryId(1)
                 .products(List.of(productDTO))
                 .build();
+
+        categorySummary = new CategorySummary() {
+            @Override
+            public Integer getCategoryId() {
+                return category.getCategoryId();
+            }
+
+            @Override
+            public String getName() {
+                return category.getName();
+            }
+        };
     }
 
     @Nested
@@ -75,46 +117,83 @@ public class CategoryServiceTest {
     class GetCategoriesTests {
 
         @Test
-        @DisplayName("When categories are fetched, then map the entities to DTOs")
-        void getAllCategoriesTest() {
-            when(categoryRepository.findAll()).thenReturn(List.of(category));
-            when(dtoMapper.mapToCategoryDTO(any(Category.class))).thenCallRealMethod();
-            when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
+        @DisplayName("When the unpaged listing is fetched, then return the snapshot without a query")
+        void getAllCategoriesSnapshotTest() {
+            var snapshot = new CategoryResponseSnapshot.Snapshot(new byte[0], new byte[0], "hash", 1);
 
-            var foundCategories = categoryService.getAllCategories();
+            when(categoryResponseSnapshot.get()).thenReturn(snapshot);
 
-            verify(categoryRepository, times(1)).findAll();
-            verifyNoMoreInteractions(categoryRepository);
+            var foundSnapshot = categoryService.getAllCategoriesSnapshot();
 
-            verify(dtoMapper, times(1)).mapToCategoryDTO(any(Category.class));
-            verify(dtoMapper, times(1)).mapToCategoryDTO(any(Category.class));
-            verifyNoMoreInteractions(dtoMapper);
+            verify(categoryResponseSnapshot, times(1)).get();
+            verifyNoInteractions(categoryRepository);
+
+            assertThat(foundSnapshot).isSameAs(snapshot);
+        }
+
+        @Test
+        @DisplayName("When a page of categories is fetched, then only select the projection")
+        void getCategoriesPageTest() {
+            when(categoryRepository.findAllProjectedBy(any(Pageable.class))).thenReturn(List.of(categorySummary));
+            when(dtoMapper.mapToCategoryDTO(any(CategorySummary.class))).thenCallRealMethod();
+
+            var foundCategories = categoryService.getCategories(0, 20, false);
+
+            verify(categoryRepository, times(1)).findAllProjectedBy(any(Pageable.class));
+            verifyNoMoreInteractions(categoryRepository);
 
             assertThat(foundCategories)
                     .hasSize(1)
                     .first()
                     .hasFieldOrPropertyWithValue("categoryId", category.getCategoryId())
-                    .hasFieldOrPropertyWithValue("name", category.getName())
+                    .hasFieldOrPropertyWithValue("products", null);
+        }
+
+        @Test
+        @DisplayName("When a page of categories is fetched with products, then map the entities to DTOs")
+        void getCategoriesPageWithProductsTest() {
+            when(categoryRepository.findCategoryIds(any(Pageable.class))).thenReturn(List.of(1));
+            when(categoryRepository.findWithProductsByCategoryIdIn(anyCollection(), any(Sort.class))).thenReturn(List.of(category));
+            when(dtoMapper.mapToCategoryDTO(any(Category.class))).thenCallRealMethod();
+
+            var foundCategories = categoryService.getCategories(0, 20, true);
+
+            verify(categoryRepository, times(1)).findCategoryIds(any(Pageable.class));
+            verify(categoryRepository, times(1)).findWithProductsByCategoryIdIn(eq(List.of(1)), any(Sort.class));
+            verifyNoMoreInteractions(categoryRepository);
+
+            assertThat(foundCategories)
+                    .hasSize(1)
+                    .first()
                     .extracting(CategoryDTO::getProducts)
                     .asList()
                     .first()
                     .isEqualTo(productDTO);
         }
 
+        @Test
+        @DisplayName("When the page size is too large, then return null")
+        void getCategoriesWithInvalidSizeTest() {
+            var foundCategories = categoryService.getCategories(0, CategoryService.MAX_PAGE_SIZE + 1, false);
+
+            verifyNoInteractions(categoryRepository);
+            verifyNoInteractions(dtoMapper);
+
+            assertThat(foundCategories).isNull();
+        }
+
         @Test
         @DisplayName("When a category is fetched, then map it to the DTO")
         void getCategoryTest() {
-            when(categoryRepository.findById(anyInt())).thenReturn(Optional.of(category));
+            when(categoryRepository.findWithProductsByCategoryId(anyInt())).thenReturn(Optional.of(category));
             when(dtoMapper.mapToCategoryDTO(any(Category.class))).thenCallRealMethod();
-            when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
 
             var foundCategory = categoryService.getCategory(1);
 
-            verify(categoryRepository, times(1)).findById(anyInt());
+            verify(categoryRepository, times(1)).findWithProductsByCategoryId(anyInt());
             verifyNoMoreInteractions(categoryRepository);
 
             verify(dtoMapper, times(1)).mapToCategoryDTO(any(Category.class));
-            verify(dtoMapper, times(1)).mapToProductDTO(any(Product.class));
             verifyNoMoreInteractions(dtoMapper);
 
             assertThat(foundCategory)
@@ -129,11 +208,11 @@ public class CategoryServiceTest {
         @Test
         @DisplayName("When no category is found, then return null")
         void getCategoryNotFoundTest() {
-            when(categoryRepository.findById(anyInt())).thenReturn(Optional.empty());
+            when(categoryRepository.findWithProductsByCategoryId(anyInt())).thenReturn(Optional.empty());
 
             var foundCategory = categoryService.getCategory(1);
 
-            verify(categoryRepository, times(1)).findById(anyInt());
+            verify(categoryRepository, times(1)).findWithProductsByCategoryId(anyInt());
             verifyNoMoreInteractions(categoryRepository);
 
             verifyNoInteractions(dtoMapper);
@@ -142,6 +221,208 @@ public class CategoryServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("getCategoriesVersion Test Suite")
+    class GetCategoriesVersionTests {
+
+        private final OffsetDateTime updatedAt = OffsetDateTime.parse("2023-11-14T22:13:20Z");
+
+        @Test
+        @DisplayName("When the listing has no products, then only the category table is versioned")
+        void getCategoriesVersionTest() {
+            when(categoryRepository.findTableVersion()).thenReturn(tableVersion(2L, 5L, updatedAt));
+
+            var version = categoryService.getCategoriesVersion(false);
+
+            verify(categoryRepository, times(1)).findTableVersion();
+            verifyNoMoreInteractions(categoryRepository);
+            verifyNoInteractions(productRepository, dtoMapper);
+
+            assertThat(version.getEtag()).isEqualTo("\"c-2-5\"");
+            assertThat(version.getLastModified()).isEqualTo(updatedAt.toInstant().toEpochMilli());
+        }
+
+        @Test
+        @DisplayName("When the listing includes products, then product changes move the validators too")
+        void getCategoriesVersionWithProductsTest() {
+            when(categoryRepository.findTableVersion()).thenReturn(tableVersion(2L, 5L, updatedAt));
+            when(productRepository.findTableVersion()).thenReturn(tableVersion(10L, 12L, updatedAt.plusDays(1)));
+
+            var version = categoryService.getCategoriesVersion(true);
+
+            verify(categoryRepository, times(1)).findTableVersion();
+            verifyNoMoreInteractions(categoryRepository);
+
+            verify(productRepository, times(1)).findTableVersion();
+            verifyNoMoreInteractions(productRepository);
+
+            assertThat(version.getEtag()).isEqualTo("\"cp-2-5-10-12\"");
+            assertThat(version.getLastModified()).isEqualTo(updatedAt.plusDays(1).toInstant().toEpochMilli());
+        }
+
+        @Test
+        @DisplayName("When there are no categories, then leave Last-Modified out")
+        void getCategoriesVersionWhenEmptyTest() {
+            when(categoryRepository.findTableVersion()).thenReturn(tableVersion(0L, 0L, null));
+
+            var version = categoryService.getCategoriesVersion(false);
+
+            assertThat(version.getEtag()).isEqualTo("\"c-0-0\"");
+            assertThat(version.getLastModified()).isEqualTo(-1);
+        }
+
+        private TableVersion tableVersion(Long count, Long versions, OffsetDateTime lastModified) {
+            return new TableVersion() {
+                @Override
+                public Long getCount() {
+                    return count;
+                }
+
+                @Override
+                public Long getVersions() {
+                    return versions;
+                }
+
+                @Override
+                public OffsetDateTime getLastModified() {
+                    return lastModified;
+                }
+            };
+        }
+    }
+
+    @Nested
+    @DisplayName("getCategoryVersion Test Suite")
+    class GetCategoryVersionTests {
+
+        @Test
+        @DisplayName("When the category exists, then tag it with its own and its products' versions and last changes")
+        void getCategoryVersionTest() {
+            var updatedAt = OffsetDateTime.parse("2023-11-14T22:13:20Z");
+            var productsUpdatedAt = updatedAt.plusDays(1);
+
+            when(categoryRepository.findVersionByCategoryId(anyInt()))
+                    .thenReturn(Optional.of(categoryVersion(2L, updatedAt, 3L, 7L, productsUpdatedAt)));
+
+            var version = categoryService.getCategoryVersion(1);
+
+            verify(categoryRepository, times(1)).findVersionByCategoryId(1);
+            verifyNoMoreInteractions(categoryRepository);
+            verifyNoInteractions(dtoMapper);
+
+            assertThat(version.getEtag()).isEqualTo("\"c1-2-3-7\"");
+            assertThat(version.getLastModified()).isEqualTo(productsUpdatedAt.toInstant().toEpochMilli());
+        }
+
+        @Test
+        @DisplayName("When the category is not found, then return null")
+        void getCategoryVersionNotFoundTest() {
+            when(categoryRepository.findVersionByCategoryId(anyInt())).thenReturn(Optional.empty());
+
+            assertThat(categoryService.getCategoryVersion(1)).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("getCategoryProducts Test Suite")
+    class GetCategoryProductsTests {
+
+        @Test
+        @DisplayName("When the categories share products, then page over the intersection and count it")
+        void getCategoryProductsTest() {
+            when(categoryMembershipIndex.members(anyCollection(), eq(true))).thenReturn(RoaringBitmap.bitmapOf(2, 4, 6, 8, 10));
+            when(productRepository.findByProductIdIn(anyCollection())).thenReturn(List.of(summary(8), summary(6)));
+            when(dtoMapper.mapToProductDTO(any(ProductSummary.class))).thenCallRealMethod();
+
+            var page = categoryService.getCategoryProducts(1, List.of(5, 9), 1, 2);
+
+            verify(categoryMembershipIndex, times(1)).members(Set.of(1, 5, 9), true);
+            verifyNoMoreInteractions(categoryMembershipIndex);
+
+            verify(productRepository, times(1)).findByProductIdIn(List.of(6, 8));
+            verifyNoMoreInteractions(productRepository);
+
+            verifyNoInteractions(categoryRepository);
+
+            assertThat(page.getTotal()).isEqualTo(5);
+            assertThat(page.getProducts())
+                    .extracting(ProductDTO::getProductId)
+                    .containsExactly(6, 8);
+        }
+
+        @Test
+        @DisplayName("When the page is past the last product, then skip the product fetch")
+        void getCategoryProductsPastLastPageTest() {
+            when(categoryMembershipIndex.members(anyCollection(), eq(true))).thenReturn(RoaringBitmap.bitmapOf(2));
+
+            var page = categoryService.getCategoryProducts(1, null, 3, 20);
+
+            verifyNoInteractions(productRepository);
+
+            assertThat(page.getTotal()).isEqualTo(1);
+            assertThat(page.getProducts()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("When the page size is too large, then return null")
+        void getCategoryProductsWithOversizedPageTest() {
+            var page = categoryService.getCategoryProducts(1, null, 0, CategoryService.MAX_PAGE_SIZE + 1);
+
+            verifyNoInteractions(categoryMembershipIndex);
+            verifyNoInteractions(productRepository);
+
+            assertThat(page).isNull();
+        }
+
+        @Test
+        @DisplayName("When more categories are given than a filter allows, then return null without reading the index")
+        void getCategoryProductsWithTooManyCategoriesTest() {
+            var categoryIds = IntStream.rangeClosed(2, ProductService.MAX_FILTER_CATEGORIES + 1).boxed().toList();
+
+            var page = categoryService.getCategoryProducts(1, categoryIds, 0, 20);
+
+            verifyNoInteractions(categoryMembershipIndex);
+            verifyNoInteractions(productRepository);
+
+            assertThat(page).isNull();
+        }
+
+        @Test
+        @DisplayName("When one of the other categories is empty, then return null without reading the index")
+        void getCategoryProductsWithNullCategoryTest() {
+            var page = categoryService.getCategoryProducts(1, Arrays.asList(5, null), 0, 20);
+
+            verifyNoInteractions(categoryMembershipIndex);
+            verifyNoInteractions(productRepository);
+
+            assertThat(page).isNull();
+        }
+
+        private ProductSummary summary(Integer productId) {
+            return new ProductSummary() {
+                @Override
+                public Integer getProductId() {
+                    return productId;
+                }
+
+                @Override
+                public String getTitle() {
+                    return product.getTitle();
+                }
+
+                @Override
+                public String getDescription() {
+                    return product.getDescription();
+                }
+
+                @Override
+                public OffsetDateTime getReleaseDate() {
+                    return product.getReleaseDate();
+                }
+            };
+        }
+    }
+
     @Nested
     @DisplayName("createCategory Test Suite")
     class CreateCategoryTests {
@@ -151,7 +432,6 @@ public class CategoryServiceTest {
         void createCategoryTest() {
             when(categoryRepository.saveAndFlush(any(Category.class))).thenReturn(category);
             when(dtoMapper.mapToCategoryDTO(any(Category.class))).thenCallRealMethod();
-            when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
 
             var createdCategory = categoryService.createCategory(categoryDTO);
 
@@ -159,7 +439,6 @@ public class CategoryServiceTest {
             verifyNoMoreInteractions(categoryRepository);
 
             verify(dtoMapper, times(1)).mapToCategoryDTO(any(Category.class));
-            verify(dtoMapper, times(1)).mapToProductDTO(any(Product.class));
             verifyNoMoreInteractions(dtoMapper);
 
             assertThat(createdCategory)
@@ -198,34 +477,102 @@ public class CategoryServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("categoryExists Test Suite")
+    class CategoryExistsTests {
+
+        @Test
+        @DisplayName("When the category has products in the index, then answer without a query")
+        void categoryExistsFromIndexTest() {
+            when(categoryMembershipIndex.count(anyInt())).thenReturn(3);
+
+            assertThat(categoryService.categoryExists(1)).isTrue();
+
+            verifyNoInteractions(categoryRepository);
+        }
+
+        @Test
+        @DisplayName("When the category has no products in the index, then look it up")
+        void categoryExistsFromRepositoryTest() {
+            when(categoryMembershipIndex.count(anyInt())).thenReturn(0);
+            when(categoryRepository.existsById(anyInt())).thenReturn(false);
+
+            assertThat(categoryService.categoryExists(99)).isFalse();
+
+            verify(categoryRepository, times(1)).existsById(99);
+            verifyNoMoreInteractions(categoryRepository);
+        }
+    }
+
     @Nested
     @DisplayName("updateCategory Test Suite")
     class UpdateCategoryTests {
 
+        private final CategoryVersion categoryVersion = categoryVersion(1L, null, 1L, 0L, null);
+
         @Test
-        @DisplayName("When a category is updated, then map the entity to the DTO")
+        @DisplayName("When a category is updated, then rename the row without loading its products and tag the saved version")
         void updateCategoryTest() {
+            category.setProducts(null);
+            category.setVersion(1L);
+
             when(categoryRepository.findById(anyInt())).thenReturn(Optional.of(category));
+            when(categoryRepository.findVersionByCategoryId(anyInt())).thenReturn(Optional.of(categoryVersion));
+            when(categoryRepository.saveAndFlush(any(Category.class))).thenAnswer(invocation -> {
+                category.setVersion(2L);
+                return category;
+            });
             when(dtoMapper.mapToCategoryDTO(any(Category.class))).thenCallRealMethod();
-            when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
 
-            var updatedCategory = categoryService.updateCategory(1, categoryDTO);
+            var updatedCategory = categoryService.updateCategory(1, categoryDTO, null);
 
-            verify(categoryRepository, times(1)).findById(anyInt());
+            verify(categoryRepository, times(1)).findById(1);
+            verify(categoryRepository, times(1)).findVersionByCategoryId(1);
             verify(categoryRepository, times(1)).saveAndFlush(any(Category.class));
             verifyNoMoreInteractions(categoryRepository);
 
+            verify(productCache, times(1)).evictByCategory(category.getCategoryId());
+            verify(categoryResponseSnapshot, times(1)).invalidate();
+            verifyNoMoreInteractions(productCache);
+
             verify(dtoMapper, times(1)).mapToCategoryDTO(any(Category.class));
-            verify(dtoMapper, times(1)).mapToProductDTO(any(Product.class));
             verifyNoMoreInteractions(dtoMapper);
 
-            assertThat(updatedCategory)
+            assertThat(updatedCategory.getCategory())
                     .hasFieldOrPropertyWithValue("categoryId", category.getCategoryId())
                     .hasFieldOrPropertyWithValue("name", category.getName())
-                    .extracting(CategoryDTO::getProducts)
-                    .asList()
-                    .first()
-                    .isEqualTo(productDTO);
+                    .hasFieldOrPropertyWithValue("products", null);
+            assertThat(updatedCategory.getEtag()).isEqualTo("\"c1-2-1-0\"");
+        }
+
+        @Test
+        @DisplayName("When the If-Match tag is current, then update the category")
+        void updateCategoryWithCurrentIfMatchTest() {
+            category.setVersion(1L);
+
+            when(categoryRepository.findById(anyInt())).thenReturn(Optional.of(category));
+            when(categoryRepository.findVersionByCategoryId(anyInt())).thenReturn(Optional.of(categoryVersion));
+
+            categoryService.updateCategory(1, categoryDTO, "\"c1-1-1-0\"");
+
+            verify(categoryRepository, times(1)).saveAndFlush(category);
+        }
+
+        @Test
+        @DisplayName("When the If-Match tag is stale, then fail with an optimistic locking exception without saving")
+        void updateCategoryWithStaleIfMatchTest() {
+            when(categoryRepository.findById(anyInt())).thenReturn(Optional.of(category));
+            when(categoryRepository.findVersionByCategoryId(anyInt())).thenReturn(Optional.of(categoryVersion));
+
+            assertThatThrownBy(() -> categoryService.updateCategory(1, categoryDTO, "\"c1-0-1-0\""))
+                    .isInstanceOf(OptimisticLockingFailureException.class);
+
+            verify(categoryRepository, times(1)).findById(1);
+            verify(categoryRepository, times(1)).findVersionByCategoryId(1);
+            verifyNoMoreInteractions(categoryRepository);
+
+            verifyNoInteractions(productCache);
+            verifyNoInteractions(dtoMapper);
         }
 
         @Test
@@ -233,7 +580,7 @@ public class CategoryServiceTest {
         void updateCategoryWithNullNameTest() {
             categoryDTO.setName(null);
 
-            var updatedCategory = categoryService.updateCategory(1, categoryDTO);
+            var updatedCategory = categoryService.updateCategory(1, categoryDTO, null);
 
             verifyNoInteractions(categoryRepository);
             verifyNoInteractions(dtoMapper);
@@ -246,7 +593,7 @@ public class CategoryServiceTest {
         void updateCategoryWithEmptyNameTest() {
             categoryDTO.setName("");
 
-            var updatedCategory = categoryService.updateCategory(1, categoryDTO);
+            var updatedCategory = categoryService.updateCategory(1, categoryDTO, null);
 
             verifyNoInteractions(categoryRepository);
             verifyNoInteractions(dtoMapper);
@@ -258,10 +605,12 @@ public class CategoryServiceTest {
         @DisplayName("When no category is found to update, then return null")
         void updateCategoryWithNoCategoryFound() {
             when(categoryRepository.findById(anyInt())).thenReturn(Optional.empty());
+            when(categoryRepository.findVersionByCategoryId(anyInt())).thenReturn(Optional.empty());
 
-            var updatedCategory = categoryService.updateCategory(1, categoryDTO);
+            var updatedCategory = categoryService.updateCategory(1, categoryDTO, null);
 
-            verify(categoryRepository, times(1)).findById(anyInt());
+            verify(categoryRepository, times(1)).findById(1);
+            verify(categoryRepository, times(1)).findVersionByCategoryId(1);
             verifyNoMoreInteractions(categoryRepository);
 
             verifyNoInteractions(dtoMapper);
@@ -269,4 +618,117 @@ public class CategoryServiceTest {
             assertThat(updatedCategory).isNull();
         }
     }
+
+    @Nested
+    @DisplayName("patchCategory Test Suite")
+    class PatchCategoryTests {
+
+        private CategoryVersion categoryVersion;
+
+        @BeforeEach
+        void setup() {
+            categoryVersion = CategoryServiceTest.categoryVersion(1L, null, 1L, 0L, null);
+        }
+
+        @Test
+        @DisplayName("When the name is patched, then update the category row without loading its products")
+        void patchCategoryTest() {
+            var patch = JsonNodeFactory.instance.objectNode().put("name", "Patched name");
+
+            when(categoryRepository.findById(anyInt())).thenReturn(Optional.of(category));
+            when(categoryRepository.findVersionByCategoryId(anyInt())).thenReturn(Optional.of(categoryVersion));
+
+            var version = categoryService.patchCategory(1, patch, null);
+
+            verify(categoryRepository, times(1)).findById(1);
+            verify(categoryRepository, times(1)).saveAndFlush(category);
+            verify(categoryRepository, times(1)).findVersionByCategoryId(1);
+            verifyNoMoreInteractions(categoryRepository);
+
+            verify(productCache, times(1)).evictByCategory(1);
+            verify(categoryResponseSnapshot, times(1)).invalidate();
+            verifyNoInteractions(productRepository, dtoMapper);
+
+            assertThat(category.getName()).isEqualTo("Patched name");
+            assertThat(version.getEtag()).isEqualTo("\"c1-1-1-0\"");
+        }
+
+        @Test
+        @DisplayName("When the patch changes nothing, then skip the update")
+        void patchCategoryWithEmptyPatchTest() {
+            when(categoryRepository.findById(anyInt())).thenReturn(Optional.of(category));
+            when(categoryRepository.findVersionByCategoryId(anyInt())).thenReturn(Optional.of(categoryVersion));
+
+            categoryService.patchCategory(1, JsonNodeFactory.instance.objectNode(), null);
+
+            verify(categoryRepository, never()).saveAndFlush(any(Category.class));
+            verifyNoInteractions(productCache);
+        }
+
+        @Test
+        @DisplayName("When the name is patched to empty, then return null without loading the category")
+        void patchCategoryWithEmptyNameTest() {
+            var version = categoryService.patchCategory(1, JsonNodeFactory.instance.objectNode().put("name", ""), null);
+
+            verifyNoInteractions(categoryRepository);
+
+            assertThat(version).isNull();
+        }
+
+        @Test
+        @DisplayName("When the name is patched past its column length, then return null without loading the category")
+        void patchCategoryWithLongNameTest() {
+            var patch = JsonNodeFactory.instance.objectNode().put("name", "n".repeat(CategoryService.MAX_NAME_LENGTH + 1));
+
+            var version = categoryService.patchCategory(1, patch, null);
+
+            verifyNoInteractions(categoryRepository);
+
+            assertThat(version).isNull();
+        }
+
+        @Test
+        @DisplayName("When the If-Match tag is stale, then fail with an optimistic locking exception without saving")
+        void patchCategoryWithStaleIfMatchTest() {
+            when(categoryRepository.findById(anyInt())).thenReturn(Optional.of(category));
+            when(categoryRepository.findVersionByCategoryId(anyInt())).thenReturn(Optional.of(categoryVersion));
+
+            var patch = JsonNodeFactory.instance.objectNode().put("name", "Patched name");
+
+            assertThatThrownBy(() -> categoryService.patchCategory(1, patch, "\"c1-0-1-0\""))
+                    .isInstanceOf(OptimisticLockingFailureException.class);
+
+            verify(categoryRepository, never()).saveAndFlush(any(Category.class));
+        }
+    }
+
+    private static CategoryVersion categoryVersion(Long version, OffsetDateTime updatedAt, Long productCount,
+                                                   Long productVersions, OffsetDateTime productsUpdatedAt) {
+        return new CategoryVersion() {
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+
+            @Override
+            public OffsetDateTime getUpdatedAt() {
+                return updatedAt;
+            }
+
+            @Override
+            public Long getProductCount() {
+                return productCount;
+            }
+
+            @Override
+            public Long getProductVersions() {
+                return productVersions;
+            }
+
+            @Override
+            public OffsetDateTime getProductsUpdatedAt() {
+                return productsUpdatedAt;
+            }
+        };
+    }
 }
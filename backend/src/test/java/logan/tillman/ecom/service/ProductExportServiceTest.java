@@ -0,0 +1,120 @@
+package logan.tillman.ecom.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import logan.tillman.ecom.dao.ProductExportRow;
+import logan.tillman.ecom.dao.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductExportServiceTest {
+
+    @Mock
+    ProductRepository productRepository;
+
+    private ProductExportService productExportService;
+
+    private final OffsetDateTime releaseDate = OffsetDateTime.parse("2023-11-01T00:00Z");
+
+    @BeforeEach
+    void setup() {
+        var objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        productExportService = new ProductExportService(productRepository, objectMapper);
+    }
+
+    @Test
+    @DisplayName("When products are exported as NDJSON, then write one line per product with its category ids")
+    void exportProductsAsNdjsonTest() throws IOException {
+        when(productRepository.streamExportRows()).thenReturn(Stream.of(
+                row(1, "First product", null, 1),
+                row(1, "First product", null, 2),
+                row(2, "Second product", "No categories", null)));
+
+        var outputStream = new ByteArrayOutputStream();
+        var exported = productExportService.exportProducts(ProductExportService.NDJSON, outputStream);
+
+        verify(productRepository, times(1)).streamExportRows();
+        verifyNoMoreInteractions(productRepository);
+
+        assertThat(exported).isEqualTo(2);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8).split("\n"))
+                .containsExactly(
+                        "{\"productId\":1,\"title\":\"First product\",\"description\":null,\"releaseDate\":\"2023-11-01T00:00:00Z\",\"categoryIds\":[1,2]}",
+                        "{\"productId\":2,\"title\":\"Second product\",\"description\":\"No categories\",\"releaseDate\":\"2023-11-01T00:00:00Z\",\"categoryIds\":[]}");
+    }
+
+    @Test
+    @DisplayName("When products are exported as CSV, then write a header and escape the text columns")
+    void exportProductsAsCsvTest() throws IOException {
+        when(productRepository.streamExportRows()).thenReturn(Stream.of(
+                row(1, "Product, with comma", "Says \"hi\"", 1),
+                row(1, "Product, with comma", "Says \"hi\"", 3)));
+
+        var outputStream = new ByteArrayOutputStream();
+        var exported = productExportService.exportProducts(ProductExportService.CSV, outputStream);
+
+        assertThat(exported).isEqualTo(1);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8).split("\n"))
+                .containsExactly(
+                        "productId,title,description,releaseDate,categoryIds",
+                        "1,\"Product, with comma\",\"Says \"\"hi\"\"\",2023-11-01T00:00Z,1;3");
+    }
+
+    @Test
+    @DisplayName("When there are no products, then only write the CSV header")
+    void exportProductsWithNoProductsTest() throws IOException {
+        when(productRepository.streamExportRows()).thenReturn(Stream.empty());
+
+        var outputStream = new ByteArrayOutputStream();
+        var exported = productExportService.exportProducts(ProductExportService.CSV, outputStream);
+
+        assertThat(exported).isZero();
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo("productId,title,description,releaseDate,categoryIds\n");
+    }
+
+    private ProductExportRow row(Integer productId, String title, String description, Integer categoryId) {
+        return new ProductExportRow() {
+            @Override
+            public Integer getProductId() {
+                return productId;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+
+            @Override
+            public OffsetDateTime getReleaseDate() {
+                return releaseDate;
+            }
+
+            @Override
+            public Integer getCategoryId() {
+                return categoryId;
+            }
+        };
+    }
+}
@@ -0,0 +1,172 @@
+package logan.tillman.ecom.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import logan.tillman.ecom.dto.ProductBatchResultDTO;
+import logan.tillman.ecom.dto.ProductDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductImportServiceTest {
+
+    @Mock
+    ProductService productService;
+
+    @Captor
+    ArgumentCaptor<List<ProductDTO>> productListCaptor;
+
+    private ProductImportService productImportService;
+
+    @BeforeEach
+    void setup() {
+        productImportService = new ProductImportService(productService, new ObjectMapper().findAndRegisterModules(), 2, 64);
+    }
+
+    @Test
+    @DisplayName("When products are imported, then persist them in chunks and summarize the results")
+    void importProductsTest() {
+        var chunkSizes = new ArrayList<Integer>();
+
+        when(productService.createProducts(anyList())).thenAnswer(invocation -> {
+            List<ProductDTO> chunk = invocation.getArgument(0);
+            chunkSizes.add(chunk.size());
+            return IntStream.range(0, chunk.size())
+                    .mapToObj(index -> ProductBatchResultDTO.builder()
+                            .index(index)
+                            .productId(index + 1)
+                            .success(true)
+                            .build())
+                    .toList();
+        });
+
+        var summary = productImportService.importProducts(ndjson("""
+                {"title":"First product"}
+                {"title":"Second product"}
+
+                {"title":"Third product","releaseDate":"2023-11-01T00:00:00Z"}
+                """));
+
+        verify(productService, times(2)).createProducts(anyList());
+        verifyNoMoreInteractions(productService);
+
+        assertThat(chunkSizes).containsExactly(2, 1);
+        assertThat(summary)
+                .hasFieldOrPropertyWithValue("processed", 3)
+                .hasFieldOrPropertyWithValue("succeeded", 3)
+                .hasFieldOrPropertyWithValue("failed", 0)
+                .hasFieldOrPropertyWithValue("chunks", 2);
+        assertThat(summary.getFailures()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("When lines are malformed or rejected, then report them by line number")
+    void importProductsWithFailuresTest() {
+        when(productService.createProducts(anyList())).thenReturn(List.of(
+                ProductBatchResultDTO.builder().index(0).productId(1).success(true).build(),
+                ProductBatchResultDTO.builder().index(1).success(false).error("Title is required").build()));
+
+        var summary = productImportService.importProducts(ndjson("""
+                {"title":"First product"}
+                {"title":
+                {"title":""}
+                """));
+
+        verify(productService, times(1)).createProducts(productListCaptor.capture());
+        verifyNoMoreInteractions(productService);
+
+        assertThat(productListCaptor.getValue()).hasSize(2);
+        assertThat(summary)
+                .hasFieldOrPropertyWithValue("processed", 3)
+                .hasFieldOrPropertyWithValue("succeeded", 1)
+                .hasFieldOrPropertyWithValue("failed", 2);
+        assertThat(summary.getFailures())
+                .extracting(ProductBatchResultDTO::getIndex)
+                .containsExactly(2, 3);
+    }
+
+    @Test
+    @DisplayName("When the database rejects a chunk, then report its lines and keep importing")
+    void importProductsWithRejectedChunkTest() {
+        when(productService.createProducts(anyList()))
+                .thenThrow(new DataIntegrityViolationException("value too long for type character varying(100)"))
+                .thenReturn(List.of(ProductBatchResultDTO.builder().index(0).productId(3).success(true).build()));
+
+        var summary = productImportService.importProducts(ndjson("""
+                {"title":"First product"}
+                {"title":"Second product"}
+                {"title":"Third product"}
+                """));
+
+        verify(productService, times(2)).createProducts(anyList());
+        verifyNoMoreInteractions(productService);
+
+        assertThat(summary)
+                .hasFieldOrPropertyWithValue("processed", 3)
+                .hasFieldOrPropertyWithValue("succeeded", 1)
+                .hasFieldOrPropertyWithValue("failed", 2)
+                .hasFieldOrPropertyWithValue("chunks", 2);
+        assertThat(summary.getFailures())
+                .extracting(ProductBatchResultDTO::getIndex)
+                .containsExactly(1, 2);
+    }
+
+    @Test
+    @DisplayName("When a line is longer than the limit, then fail it without reading it into memory")
+    void importProductsWithLongLineTest() {
+        when(productService.createProducts(anyList())).thenReturn(List.of(
+                ProductBatchResultDTO.builder().index(0).productId(1).success(true).build()));
+
+        var summary = productImportService.importProducts(ndjson("""
+                {"title":"%s"}
+                {"title":"Second product"}
+                """.formatted("t".repeat(100))));
+
+        verify(productService, times(1)).createProducts(productListCaptor.capture());
+        verifyNoMoreInteractions(productService);
+
+        assertThat(productListCaptor.getValue())
+                .extracting(ProductDTO::getTitle)
+                .containsExactly("Second product");
+        assertThat(summary.getFailures())
+                .singleElement()
+                .hasFieldOrPropertyWithValue("index", 1)
+                .hasFieldOrPropertyWithValue("error", "Line is longer than 64 characters");
+    }
+
+    @Test
+    @DisplayName("When the stream cannot be read, then return null")
+    void importProductsWithUnreadableStreamTest() {
+        var summary = productImportService.importProducts(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+
+        verifyNoInteractions(productService);
+
+        assertThat(summary).isNull();
+    }
+
+    private static InputStream ndjson(String lines) {
+        return new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8));
+    }
+}
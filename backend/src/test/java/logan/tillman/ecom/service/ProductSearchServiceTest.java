@@ -0,0 +1,110 @@
+package logan.tillman.ecom.service;
+
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.dao.ProductSummary;
+import logan.tillman.ecom.mapper.DtoMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductSearchServiceTest {
+
+    @Mock
+    ProductRepository productRepository;
+
+    private final DtoMapper dtoMapper = new DtoMapper();
+
+    @Test
+    @DisplayName("When full-text search is enabled, then return the products in rank order")
+    void searchProductsTest() {
+        var productSearchService = new ProductSearchService(productRepository, dtoMapper, true);
+
+        when(productRepository.searchProductIds("red shoes", 10, 20L)).thenReturn(List.of(7, 3));
+        when(productRepository.findByProductIdIn(anyCollection())).thenReturn(List.of(summary(3), summary(7)));
+
+        var products = productSearchService.searchProducts(" red shoes ", 2, 10);
+
+        verify(productRepository, times(1)).searchProductIds("red shoes", 10, 20L);
+        verify(productRepository, times(1)).findByProductIdIn(List.of(7, 3));
+        verifyNoMoreInteractions(productRepository);
+
+        assertThat(products)
+                .extracting("productId")
+                .containsExactly(7, 3);
+    }
+
+    @Test
+    @DisplayName("When full-text search is disabled, then fall back to the portable text search")
+    void searchProductsWithFallbackTest() {
+        var productSearchService = new ProductSearchService(productRepository, dtoMapper, false);
+
+        when(productRepository.searchProductIdsByText(eq("shoes"), any(PageRequest.class))).thenReturn(List.of());
+
+        var products = productSearchService.searchProducts("shoes", 0, 20);
+
+        verify(productRepository, times(1)).searchProductIdsByText("shoes", PageRequest.of(0, 20));
+        verifyNoMoreInteractions(productRepository);
+
+        assertThat(products).isEmpty();
+    }
+
+    @Test
+    @DisplayName("When the fallback query contains LIKE wildcards, then escape them so they match literally")
+    void searchProductsWithWildcardsTest() {
+        var productSearchService = new ProductSearchService(productRepository, dtoMapper, false);
+
+        when(productRepository.searchProductIdsByText(anyString(), any(PageRequest.class))).thenReturn(List.of());
+
+        productSearchService.searchProducts("100% off_now!", 0, 20);
+
+        verify(productRepository, times(1)).searchProductIdsByText("100!% off!_now!!", PageRequest.of(0, 20));
+        verifyNoMoreInteractions(productRepository);
+    }
+
+    @Test
+    @DisplayName("When the query is blank, then return null")
+    void searchProductsWithBlankQueryTest() {
+        var productSearchService = new ProductSearchService(productRepository, dtoMapper, true);
+
+        var products = productSearchService.searchProducts("  ", 0, 20);
+
+        verifyNoInteractions(productRepository);
+
+        assertThat(products).isNull();
+    }
+
+    private static ProductSummary summary(Integer productId) {
+        return new ProductSummary() {
+            @Override
+            public Integer getProductId() {
+                return productId;
+            }
+
+            @Override
+            public String getTitle() {
+                return "Product " + productId;
+            }
+
+            @Override
+            public String getDescription() {
+                return null;
+            }
+
+            @Override
+            public OffsetDateTime getReleaseDate() {
+                return null;
+            }
+        };
+    }
+}
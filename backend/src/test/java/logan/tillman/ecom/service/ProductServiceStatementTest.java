@@ -0,0 +1,165 @@
+package logan.tillman.ecom.service;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import jakarta.persistence.EntityManager;
+import logan.tillman.ecom.SqlStatementRecorder;
+import logan.tillman.ecom.dao.CategoryRepository;
+import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.dto.CategoryDTO;
+import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.entity.Category;
+import logan.tillman.ecom.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@ActiveProfiles(value = "test")
+public class ProductServiceStatementTest {
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    private Product product;
+    private Category firstCategory;
+    private Category thirdCategory;
+
+    @BeforeEach
+    void setup() {
+        firstCategory = categoryRepository.save(Category.builder().name("First category").build());
+        var secondCategory = categoryRepository.save(Category.builder().name("Second category").build());
+        thirdCategory = categoryRepository.save(Category.builder().name("Third category").build());
+
+        product = productRepository.save(Product.builder()
+                .title("Product title")
+                .description("A good product")
+                .categories(new LinkedHashSet<>(List.of(firstCategory, secondCategory)))
+                .build());
+
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementRecorder.reset();
+    }
+
+    @Test
+    @DisplayName("When a product is fetched, then load it with its categories in one statement")
+    void getProductStatementCountTest() {
+        var foundProduct = productService.getProduct(product.getProductId());
+
+        assertThat(SqlStatementRecorder.statements()).hasSize(1);
+        assertThat(foundProduct.getCategories()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("When several products are looked up, then load the uncached ones with categories in one statement")
+    void getProductsByIdStatementCountTest() {
+        var otherProduct = productRepository.save(Product.builder()
+                .title("Other product")
+                .categories(new LinkedHashSet<>(List.of(categoryRepository.getReferenceById(thirdCategory.getCategoryId()))))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementRecorder.reset();
+
+        var products = productService.getProductsById(List.of(otherProduct.getProductId(), product.getProductId()));
+
+        assertThat(SqlStatementRecorder.statements()).hasSize(1);
+        assertThat(products)
+                .extracting(ProductDTO::getProductId)
+                .containsExactly(otherProduct.getProductId(), product.getProductId());
+    }
+
+    @Test
+    @DisplayName("When a product page is fetched, then select the page ids and then the products with categories")
+    void getProductsStatementCountTest() {
+        var page = productService.getProducts(null, 20);
+
+        assertThat(SqlStatementRecorder.statements()).hasSize(2);
+        assertThat(page.getProducts())
+                .first()
+                .satisfies(productDTO -> assertThat(productDTO.getCategories()).hasSize(2));
+    }
+
+    @Test
+    @DisplayName("When one category of a product is swapped, then delete and insert one category_product row each")
+    void updateProductCategoryStatementCountTest() {
+        var productDTO = productDTO(firstCategory, thirdCategory);
+
+        var updatedProduct = productService.updateProduct(product.getProductId(), productDTO, null);
+
+        assertThat(joinTableStatements("delete")).hasSize(1);
+        assertThat(joinTableStatements("insert")).hasSize(1);
+        assertThat(updatedProduct.getProduct().getCategories())
+                .extracting(CategoryDTO::getCategoryId)
+                .containsExactly(firstCategory.getCategoryId(), thirdCategory.getCategoryId());
+    }
+
+    @Test
+    @DisplayName("When the categories of a product are unchanged, then leave category_product alone")
+    void updateProductSameCategoriesStatementCountTest() {
+        var productDTO = productDTO(product.getCategories().toArray(Category[]::new));
+
+        productService.updateProduct(product.getProductId(), productDTO, null);
+
+        assertThat(joinTableStatements("delete")).isEmpty();
+        assertThat(joinTableStatements("insert")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("When only the title is patched, then update just that column without touching the categories")
+    void patchProductStatementTest() {
+        var patch = JsonNodeFactory.instance.objectNode().put("title", "Patched title");
+
+        productService.patchProduct(product.getProductId(), patch, null);
+
+        var updates = SqlStatementRecorder.statements()
+                .stream()
+                .map(sql -> sql.toLowerCase(Locale.ROOT))
+                .filter(sql -> sql.startsWith("update product"))
+                .toList();
+
+        assertThat(updates).singleElement().satisfies(sql -> assertThat(sql)
+                .contains("title")
+                .doesNotContain("description", "release_date"));
+        assertThat(joinTableStatements("delete")).isEmpty();
+    }
+
+    private ProductDTO productDTO(Category... categories) {
+        return ProductDTO.builder()
+                .title("Updated title")
+                .description(product.getDescription())
+                .categories(Arrays.stream(categories)
+                        .map(category -> CategoryDTO.builder().categoryId(category.getCategoryId()).build())
+                        .toList())
+                .build();
+    }
+
+    private static List<String> joinTableStatements(String verb) {
+        return SqlStatementRecorder.statements()
+                .stream()
+                .map(sql -> sql.toLowerCase(Locale.ROOT))
+                .filter(sql -> sql.startsWith(verb) && sql.contains("category_product"))
+                .toList();
+    }
+}
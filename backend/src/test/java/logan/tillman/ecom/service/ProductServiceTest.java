@@ -1,12 +1,24 @@
 package logan.tillman.ecom.service;
 
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import logan.tillman.ecom.cache.ProductBatchLoader;
+import logan.tillman.ecom.cache.ProductCache;
 import logan.tillman.ecom.dao.CategoryRepository;
 import logan.tillman.ecom.dao.ProductRepository;
+import logan.tillman.ecom.dao.ProductSummary;
+import logan.tillman.ecom.dao.ProductVersion;
 import logan.tillman.ecom.dto.CategoryDTO;
+import logan.tillman.ecom.dto.CategoryFacetDTO;
 import logan.tillman.ecom.dto.ProductDTO;
+import logan.tillman.ecom.dto.VersionedProductDTO;
+import logan.tillman.ecom.dto.ProductSuggestionDTO;
 import logan.tillman.ecom.entity.Category;
 import logan.tillman.ecom.entity.Product;
+import logan.tillman.ecom.index.CategoryMembershipIndex;
+import logan.tillman.ecom.index.ProductTitleIndex;
+import logan.tillman.ecom.mapper.CursorCodec;
 import logan.tillman.ecom.mapper.DtoMapper;
+import logan.tillman.ecom.transaction.OptimisticRetry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -16,14 +28,30 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
@@ -40,6 +68,21 @@ public class ProductServiceTest {
     @Mock
     DtoMapper dtoMapper;
 
+    @Mock
+    ProductTitleIndex productTitleIndex;
+
+    @Mock
+    CategoryMembershipIndex categoryMembershipIndex;
+
+    @Mock
+    OptimisticRetry optimisticRetry;
+
+    @Mock
+    ProductBatchLoader productBatchLoader;
+
+    @Spy
+    ProductCache productCache = new ProductCache(100, Duration.ofMinutes(5), Duration.ofMinutes(1), Runnable::run);
+
     @InjectMocks
     ProductService productService;
 
@@ -70,7 +113,7 @@ public class ProductServiceTest {
                 .productId(1)
                 .description("A good product")
                 .releaseDate(currentDate)
-                .categories(List.of(category))
+                .categories(new LinkedHashSet<>(List.of(category)))
                 .build();
 
         productDTO = ProductDTO.builder()
@@ -87,46 +130,263 @@ public class ProductServiceTest {
     class GetProductTests {
 
         @Test
-        @DisplayName("When the product is fetched, then map it to the DTO")
+        @DisplayName("When the product is fetched, then load it through the batch loader")
         void getProductTest() {
-            when(productRepository.findById(anyInt())).thenReturn(Optional.of(product));
-            when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
-            when(dtoMapper.mapToCategoryDTO(any(Category.class))).thenCallRealMethod();
+            when(productBatchLoader.load(anyInt())).thenReturn(versioned(productDTO, 0));
 
             var foundProduct = productService.getProduct(1);
 
-            verify(productRepository, times(1)).findById(anyInt());
-            verifyNoMoreInteractions(productRepository);
+            verify(productBatchLoader, times(1)).load(1);
+            verifyNoMoreInteractions(productBatchLoader);
+            verifyNoInteractions(productRepository);
 
-            verify(dtoMapper, times(1)).mapToProductDTO(any(Product.class));
-            verify(dtoMapper, times(1)).mapToCategoryDTO(any(Category.class));
-            verifyNoMoreInteractions(dtoMapper);
+            assertThat(foundProduct).isSameAs(productDTO);
+        }
 
-            assertThat(foundProduct)
-                    .hasFieldOrPropertyWithValue("title", product.getTitle())
-                    .hasFieldOrPropertyWithValue("productId", product.getProductId())
-                    .hasFieldOrPropertyWithValue("description", product.getDescription())
-                    .hasFieldOrPropertyWithValue("releaseDate", product.getReleaseDate())
-                    .extracting(ProductDTO::getCategories)
-                    .asList()
-                    .first()
-                    .hasFieldOrPropertyWithValue("name", category.getName())
-                    .hasFieldOrPropertyWithValue("categoryId", category.getCategoryId());
+        @Test
+        @DisplayName("When the cached product has the current tag, then serve it without reloading")
+        void getProductAtVersionTest() {
+            when(productBatchLoader.load(anyInt())).thenReturn(versioned(productDTO, 3));
+
+            productService.getProduct(1);
+            var foundProduct = productService.getProduct(1, "\"p1-3-0\"");
+
+            verify(productBatchLoader, times(1)).load(1);
+            verifyNoMoreInteractions(productBatchLoader);
+
+            assertThat(foundProduct.getProduct()).isSameAs(productDTO);
+            assertThat(foundProduct.getEtag()).isEqualTo("\"p1-3-0\"");
+        }
+
+        @Test
+        @DisplayName("When the cached product has an older tag, then reload it and return the tag of the reloaded copy")
+        void getProductAtNewerVersionTest() {
+            var reloadedProductDTO = ProductDTO.builder().productId(1).title("Renamed elsewhere").build();
+
+            when(productBatchLoader.load(anyInt()))
+                    .thenReturn(versioned(productDTO, 3))
+                    .thenReturn(versioned(reloadedProductDTO, 4));
+
+            productService.getProduct(1);
+            var foundProduct = productService.getProduct(1, "\"p1-4-0\"");
+
+            verify(productBatchLoader, times(2)).load(1);
+            verifyNoMoreInteractions(productBatchLoader);
+
+            assertThat(foundProduct.getProduct()).isSameAs(reloadedProductDTO);
+            assertThat(foundProduct.getEtag()).isEqualTo("\"p1-4-0\"");
+            assertThat(productService.getProduct(1)).isSameAs(reloadedProductDTO);
+        }
+
+        @Test
+        @DisplayName("When the product is fetched twice, then serve the second read from the cache")
+        void getProductCachedTest() {
+            when(productBatchLoader.load(anyInt())).thenReturn(versioned(productDTO, 0));
+
+            var firstRead = productService.getProduct(1);
+            var secondRead = productService.getProduct(1);
+
+            verify(productBatchLoader, times(1)).load(1);
+            verifyNoMoreInteractions(productBatchLoader);
+
+            assertThat(secondRead).isSameAs(firstRead);
         }
 
         @Test
         @DisplayName("When no product is found, then return null")
         void getProductNotFoundTest() {
-            when(productRepository.findById(anyInt())).thenReturn(Optional.empty());
+            when(productBatchLoader.load(anyInt())).thenReturn(null);
 
             var foundProduct = productService.getProduct(1);
 
-            verify(productRepository, times(1)).findById(anyInt());
+            verify(productBatchLoader, times(1)).load(1);
+            verifyNoMoreInteractions(productBatchLoader);
+
+            assertThat(foundProduct).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("getProductsById Test Suite")
+    class GetProductsByIdTests {
+
+        @Test
+        @DisplayName("When some products are cached, then load only the rest and keep the requested order")
+        void getProductsByIdTest() {
+            var secondProductDTO = ProductDTO.builder().productId(2).title("Second product").build();
+            var thirdProductDTO = ProductDTO.builder().productId(3).title("Third product").build();
+            productCache.nativeCache().put(2, versioned(secondProductDTO, 0));
+
+            when(productBatchLoader.loadAll(any())).thenReturn(Map.of(1, versioned(productDTO, 0), 3, versioned(thirdProductDTO, 0)));
+
+            var products = productService.getProductsById(List.of(3, 2, 1, 3));
+
+            verify(productBatchLoader, times(1)).loadAll(integerListCaptor.capture());
+            verifyNoMoreInteractions(productBatchLoader);
+            verifyNoInteractions(productRepository);
+
+            assertThat(integerListCaptor.getValue()).containsExactlyInAnyOrder(1, 3);
+            assertThat(products).containsExactly(thirdProductDTO, secondProductDTO, productDTO);
+        }
+
+        @Test
+        @DisplayName("When an id matches no product, then leave it out")
+        void getProductsByIdUnknownTest() {
+            when(productBatchLoader.loadAll(any())).thenReturn(Map.of(1, versioned(productDTO, 0)));
+
+            var products = productService.getProductsById(List.of(1, 99));
+
+            assertThat(products).containsExactly(productDTO);
+        }
+
+        @Test
+        @DisplayName("When more ids than the page size are requested, then return null without loading anything")
+        void getProductsByIdTooManyTest() {
+            var productIds = IntStream.rangeClosed(1, ProductService.MAX_PAGE_SIZE + 1).boxed().toList();
+
+            var products = productService.getProductsById(productIds);
+
+            verifyNoInteractions(productBatchLoader);
+            assertThat(products).isNull();
+        }
+
+        @Test
+        @DisplayName("When no ids are requested, then return null")
+        void getProductsByIdEmptyTest() {
+            var products = productService.getProductsById(List.of());
+
+            verifyNoInteractions(productBatchLoader);
+            assertThat(products).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("getProductVersion Test Suite")
+    class GetProductVersionTests {
+
+        @Test
+        @DisplayName("When the product exists, then build its validators from the version columns without mapping it")
+        void getProductVersionTest() {
+            var updatedAt = OffsetDateTime.parse("2023-11-14T22:13:20Z");
+            var categoriesUpdatedAt = updatedAt.plusHours(1);
+
+            when(productRepository.findVersionByProductId(anyInt())).thenReturn(Optional.of(new ProductVersion() {
+                @Override
+                public Long getVersion() {
+                    return 3L;
+                }
+
+                @Override
+                public OffsetDateTime getUpdatedAt() {
+                    return updatedAt;
+                }
+
+                @Override
+                public OffsetDateTime getCategoriesUpdatedAt() {
+                    return categoriesUpdatedAt;
+                }
+            }));
+
+            var version = productService.getProductVersion(1);
+
+            verify(productRepository, times(1)).findVersionByProductId(1);
+            verifyNoMoreInteractions(productRepository);
+            verifyNoInteractions(dtoMapper);
+
+            assertThat(version.getEtag()).isEqualTo("\"p1-3-" + categoriesUpdatedAt.toInstant().toEpochMilli() + "\"");
+            assertThat(version.getLastModified()).isEqualTo(categoriesUpdatedAt.toInstant().toEpochMilli());
+        }
+
+        @Test
+        @DisplayName("When the product is not found, then return null")
+        void getProductVersionNotFoundTest() {
+            when(productRepository.findVersionByProductId(anyInt())).thenReturn(Optional.empty());
+
+            var version = productService.getProductVersion(1);
+
+            verify(productRepository, times(1)).findVersionByProductId(1);
+            verifyNoMoreInteractions(productRepository);
+
+            assertThat(version).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("getProducts Test Suite")
+    class GetProductsTests {
+
+        @Test
+        @DisplayName("When more products exist than the page size, then return a cursor for the next page")
+        void getProductsWithNextPageTest() {
+            when(productRepository.findProductIdsAfter(anyInt(), any(Pageable.class))).thenReturn(List.of(1, 2));
+            when(productRepository.findWithCategoriesByProductIdIn(anyCollection(), any(Sort.class))).thenReturn(List.of(product));
+            when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
+
+            var page = productService.getProducts(null, 1);
+
+            verify(productRepository, times(1)).findProductIdsAfter(0, Pageable.ofSize(2));
+            verify(productRepository, times(1)).findWithCategoriesByProductIdIn(eq(List.of(1)), any(Sort.class));
             verifyNoMoreInteractions(productRepository);
 
+            assertThat(page.getProducts())
+                    .hasSize(1)
+                    .first()
+                    .hasFieldOrPropertyWithValue("productId", product.getProductId());
+            assertThat(CursorCodec.decode(page.getNextCursor())).isEqualTo(product.getProductId());
+        }
+
+        @Test
+        @DisplayName("When a cursor is passed, then seek past the product it points to")
+        void getProductsWithCursorTest() {
+            when(productRepository.findProductIdsAfter(anyInt(), any(Pageable.class))).thenReturn(List.of(43));
+            when(productRepository.findWithCategoriesByProductIdIn(anyCollection(), any(Sort.class))).thenReturn(List.of(product));
+            when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
+
+            var page = productService.getProducts(CursorCodec.encode(42), 20);
+
+            verify(productRepository, times(1)).findProductIdsAfter(42, Pageable.ofSize(21));
+            verify(productRepository, times(1)).findWithCategoriesByProductIdIn(anyCollection(), any(Sort.class));
+            verifyNoMoreInteractions(productRepository);
+
+            assertThat(page.getProducts()).hasSize(1);
+            assertThat(page.getNextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("When there are no products past the cursor, then skip the category fetch")
+        void getProductsPastLastPageTest() {
+            when(productRepository.findProductIdsAfter(anyInt(), any(Pageable.class))).thenReturn(List.of());
+
+            var page = productService.getProducts(CursorCodec.encode(42), 20);
+
+            verify(productRepository, times(1)).findProductIdsAfter(42, Pageable.ofSize(21));
+            verifyNoMoreInteractions(productRepository);
             verifyNoInteractions(dtoMapper);
 
-            assertThat(foundProduct).isNull();
+            assertThat(page.getProducts()).isEmpty();
+            assertThat(page.getNextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("When the cursor is malformed, then return null")
+        void getProductsWithInvalidCursorTest() {
+            var page = productService.getProducts("not-a-cursor!", 20);
+
+            verifyNoInteractions(productRepository);
+            verifyNoInteractions(dtoMapper);
+
+            assertThat(page).isNull();
+        }
+
+        @Test
+        @DisplayName("When the page size is too large, then return null")
+        void getProductsWithInvalidSizeTest() {
+            var page = productService.getProducts(null, ProductService.MAX_PAGE_SIZE + 1);
+
+            verifyNoInteractions(productRepository);
+            verifyNoInteractions(dtoMapper);
+
+            assertThat(page).isNull();
         }
     }
 
@@ -138,8 +398,8 @@ public class ProductServiceTest {
         @DisplayName("When a product is created, then map it to the DTO")
         void createProductTest() {
             when(productRepository.saveAndFlush(any(Product.class))).thenReturn(product);
+            when(dtoMapper.mapToVersionedProductDTO(any(Product.class))).thenCallRealMethod();
             when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
-            when(dtoMapper.mapToCategoryDTO(any(Category.class))).thenCallRealMethod();
             when(categoryRepository.findAllById(anySet())).thenReturn(List.of(category));
 
             var createdProduct = productService.createProduct(productDTO);
@@ -147,8 +407,12 @@ public class ProductServiceTest {
             verify(productRepository, times(1)).saveAndFlush(any(Product.class));
             verifyNoMoreInteractions(productRepository);
 
+            verify(productCache, times(1)).put(argThat(entry -> entry.getProduct() == createdProduct));
+            verify(productTitleIndex, times(1)).put(product.getProductId(), product.getTitle());
+            verify(categoryMembershipIndex, times(1)).setCategories(product.getProductId(), List.of(category.getCategoryId()));
+
+            verify(dtoMapper, times(1)).mapToVersionedProductDTO(any(Product.class));
             verify(dtoMapper, times(1)).mapToProductDTO(any(Product.class));
-            verify(dtoMapper, times(1)).mapToCategoryDTO(any(Category.class));
             verifyNoMoreInteractions(dtoMapper);
 
             verify(categoryRepository, times(1)).findAllById(integerListCaptor.capture());
@@ -194,32 +458,403 @@ public class ProductServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("getProductsInCategories Test Suite")
+    class GetProductsInCategoriesTests {
+
+        @Test
+        @DisplayName("When filtering by several categories, then page over the matches and count them per category")
+        void getProductsInCategoriesTest() {
+            var productSummary = mock(ProductSummary.class);
+
+            when(productSummary.getProductId()).thenReturn(3);
+            when(categoryMembershipIndex.members(anySet(), anyBoolean())).thenReturn(RoaringBitmap.bitmapOf(3, 8));
+            when(categoryMembershipIndex.facetCounts(any(RoaringBitmap.class))).thenReturn(new TreeMap<>(Map.of(1, 2, 5, 1)));
+            when(productRepository.findByProductIdIn(anyCollection())).thenReturn(List.of(productSummary));
+            when(dtoMapper.mapToProductDTO(any(ProductSummary.class))).thenCallRealMethod();
+
+            var page = productService.getProductsInCategories(List.of(1, 5), "any", 0, 1);
+
+            verify(categoryMembershipIndex, times(1)).members(Set.of(1, 5), false);
+            verify(productRepository, times(1)).findByProductIdIn(List.of(3));
+            verifyNoMoreInteractions(productRepository);
+
+            assertThat(page.getTotal()).isEqualTo(2);
+            assertThat(page.getProducts())
+                    .extracting(ProductDTO::getProductId)
+                    .containsExactly(3);
+            assertThat(page.getFacets())
+                    .extracting(CategoryFacetDTO::getCategoryId, CategoryFacetDTO::getCount)
+                    .containsExactly(tuple(1, 2), tuple(5, 1));
+        }
+
+        @Test
+        @DisplayName("When the mode is unknown, then return null")
+        void getProductsInCategoriesWithUnknownModeTest() {
+            var page = productService.getProductsInCategories(List.of(1), "some", 0, 20);
+
+            verifyNoInteractions(categoryMembershipIndex);
+            verifyNoInteractions(productRepository);
+
+            assertThat(page).isNull();
+        }
+
+        @Test
+        @DisplayName("When one of the categories is blank, then return null")
+        void getProductsInCategoriesWithNullCategoryTest() {
+            var page = productService.getProductsInCategories(Arrays.asList(1, null), "all", 0, 20);
+
+            verifyNoInteractions(categoryMembershipIndex);
+
+            assertThat(page).isNull();
+        }
+
+        @Test
+        @DisplayName("When no categories are passed, then return null")
+        void getProductsInCategoriesWithoutCategoriesTest() {
+            var page = productService.getProductsInCategories(List.of(), "all", 0, 20);
+
+            verifyNoInteractions(categoryMembershipIndex);
+
+            assertThat(page).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("suggestProducts Test Suite")
+    class SuggestProductsTests {
+
+        @Test
+        @DisplayName("When a prefix is passed, then serve the suggestions from the title index")
+        void suggestProductsTest() {
+            var suggestion = ProductSuggestionDTO.builder()
+                    .productId(product.getProductId())
+                    .title(product.getTitle())
+                    .build();
+
+            when(productTitleIndex.suggest("prod", 10)).thenReturn(List.of(suggestion));
+
+            var suggestions = productService.suggestProducts("prod", 10);
+
+            verify(productTitleIndex, times(1)).suggest("prod", 10);
+            verifyNoMoreInteractions(productTitleIndex);
+            verifyNoInteractions(productRepository);
+
+            assertThat(suggestions).containsExactly(suggestion);
+        }
+
+        @Test
+        @DisplayName("When the limit is too large, then return null")
+        void suggestProductsWithOversizedLimitTest() {
+            var suggestions = productService.suggestProducts("prod", ProductService.MAX_SUGGESTIONS + 1);
+
+            verifyNoInteractions(productTitleIndex);
+
+            assertThat(suggestions).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("getProductsReleasedBetween Test Suite")
+    class GetProductsReleasedBetweenTests {
+
+        private final OffsetDateTime releasedAfter = OffsetDateTime.parse("2023-01-01T00:00Z");
+        private final OffsetDateTime releasedBefore = OffsetDateTime.parse("2023-12-31T00:00Z");
+
+        @Test
+        @DisplayName("When products are released in the range, then page over their summaries newest first")
+        void getProductsReleasedBetweenTest() {
+            var productSummary = new ProductSummary() {
+                @Override
+                public Integer getProductId() {
+                    return product.getProductId();
+                }
+
+                @Override
+                public String getTitle() {
+                    return product.getTitle();
+                }
+
+                @Override
+                public String getDescription() {
+                    return product.getDescription();
+                }
+
+                @Override
+                public OffsetDateTime getReleaseDate() {
+                    return product.getReleaseDate();
+                }
+            };
+
+            when(productRepository.findByReleaseDateBetween(any(OffsetDateTime.class), any(OffsetDateTime.class), any(Pageable.class)))
+                    .thenReturn(List.of(productSummary));
+            when(dtoMapper.mapToProductDTO(any(ProductSummary.class))).thenCallRealMethod();
+
+            var products = productService.getProductsReleasedBetween(releasedAfter, releasedBefore, 2, 10);
+
+            verify(productRepository, times(1)).findByReleaseDateBetween(releasedAfter, releasedBefore,
+                    PageRequest.of(2, 10, Sort.by(Sort.Order.desc("releaseDate"), Sort.Order.desc("productId"))));
+            verifyNoMoreInteractions(productRepository);
+
+            assertThat(products)
+                    .hasFieldOrPropertyWithValue("page", 2)
+                    .hasFieldOrPropertyWithValue("size", 10);
+            assertThat(products.getProducts())
+                    .singleElement()
+                    .hasFieldOrPropertyWithValue("productId", product.getProductId())
+                    .hasFieldOrPropertyWithValue("categories", null);
+        }
+
+        @Test
+        @DisplayName("When only one bound of the range is given, then return null")
+        void getProductsReleasedBetweenWithMissingBoundTest() {
+            var products = productService.getProductsReleasedBetween(null, releasedBefore, 0, 10);
+
+            verifyNoInteractions(productRepository);
+
+            assertThat(products).isNull();
+        }
+
+        @Test
+        @DisplayName("When the range is reversed, then return null")
+        void getProductsReleasedBetweenWithReversedRangeTest() {
+            var products = productService.getProductsReleasedBetween(releasedBefore, releasedAfter, 0, 10);
+
+            verifyNoInteractions(productRepository);
+
+            assertThat(products).isNull();
+        }
+
+        @Test
+        @DisplayName("When the page size is too large, then return null")
+        void getProductsReleasedBetweenWithOversizedPageTest() {
+            var products = productService.getProductsReleasedBetween(releasedAfter, releasedBefore, 0, ProductService.MAX_PAGE_SIZE + 1);
+
+            verifyNoInteractions(productRepository);
+
+            assertThat(products).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("createProducts Test Suite")
+    class CreateProductsTests {
+
+        @Test
+        @DisplayName("When a batch is created, then resolve categories once and report a result per item")
+        void createProductsTest() {
+            var invalidProductDTO = ProductDTO.builder()
+                    .title("")
+                    .build();
+
+            when(categoryRepository.findAllById(anySet())).thenReturn(List.of(category));
+            when(productRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+                List<Product> products = invocation.getArgument(0);
+                products.forEach(created -> created.setProductId(10));
+                return products;
+            });
+
+            var results = productService.createProducts(List.of(productDTO, invalidProductDTO));
+
+            verify(categoryRepository, times(1)).findAllById(integerListCaptor.capture());
+            verifyNoMoreInteractions(categoryRepository);
+
+            verify(productRepository, times(1)).saveAllAndFlush(anyList());
+            verifyNoMoreInteractions(productRepository);
+
+            verifyNoInteractions(dtoMapper);
+
+            assertThat(integerListCaptor.getValue()).containsOnly(categoryDTO.getCategoryId());
+            assertThat(results).hasSize(2);
+            assertThat(results.get(0))
+                    .hasFieldOrPropertyWithValue("index", 0)
+                    .hasFieldOrPropertyWithValue("productId", 10)
+                    .hasFieldOrPropertyWithValue("success", true);
+            assertThat(results.get(1))
+                    .hasFieldOrPropertyWithValue("index", 1)
+                    .hasFieldOrPropertyWithValue("success", false)
+                    .hasFieldOrPropertyWithValue("error", "Title is required");
+        }
+
+        @Test
+        @DisplayName("When an item references an unknown category, then fail only that item")
+        void createProductsWithUnknownCategoryTest() {
+            when(categoryRepository.findAllById(anySet())).thenReturn(List.of());
+            when(productRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            var results = productService.createProducts(List.of(productDTO));
+
+            assertThat(results)
+                    .singleElement()
+                    .hasFieldOrPropertyWithValue("success", false)
+                    .hasFieldOrPropertyWithValue("error", "Unknown category " + categoryDTO.getCategoryId());
+        }
+
+        @Test
+        @DisplayName("When an item is longer than its columns allow, then fail only that item before saving")
+        void createProductsWithLongTitleTest() {
+            var longProductDTO = ProductDTO.builder()
+                    .title("t".repeat(ProductService.MAX_TITLE_LENGTH + 1))
+                    .build();
+
+            when(productRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            var results = productService.createProducts(List.of(longProductDTO));
+
+            verify(productRepository, times(1)).saveAllAndFlush(List.of());
+            verifyNoMoreInteractions(productRepository);
+
+            assertThat(results)
+                    .singleElement()
+                    .hasFieldOrPropertyWithValue("success", false)
+                    .hasFieldOrPropertyWithValue("error", "Title is longer than 100 characters");
+        }
+
+        @Test
+        @DisplayName("When the batch is empty, then return null")
+        void createProductsWithEmptyBatchTest() {
+            var results = productService.createProducts(List.of());
+
+            verifyNoInteractions(productRepository);
+            verifyNoInteractions(categoryRepository);
+
+            assertThat(results).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("updateProducts Test Suite")
+    class UpdateProductsTests {
+
+        @Test
+        @DisplayName("When a batch is updated, then load the products and categories once and flush the changes")
+        void updateProductsTest() {
+            var unknownProductDTO = ProductDTO.builder()
+                    .productId(99)
+                    .title("Unknown product")
+                    .categories(List.of())
+                    .build();
+
+            productDTO.setTitle("Updated title");
+
+            when(optimisticRetry.execute(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+            when(productRepository.findWithCategoriesByProductIdIn(anyCollection(), any(Sort.class))).thenReturn(List.of(product));
+            when(categoryRepository.findAllById(anySet())).thenReturn(List.of(category));
+
+            var results = productService.updateProducts(List.of(productDTO, unknownProductDTO));
+
+            verify(optimisticRetry, times(1)).execute(any());
+
+            verify(productRepository, times(1)).findWithCategoriesByProductIdIn(anyCollection(), any(Sort.class));
+            verify(productRepository, times(1)).flush();
+            verifyNoMoreInteractions(productRepository);
+
+            verify(categoryRepository, times(1)).findAllById(anySet());
+            verifyNoMoreInteractions(categoryRepository);
+
+            verify(productCache, times(1)).evict(product.getProductId());
+
+            assertThat(product.getTitle()).isEqualTo("Updated title");
+            assertThat(results.get(0)).hasFieldOrPropertyWithValue("success", true);
+            assertThat(results.get(1))
+                    .hasFieldOrPropertyWithValue("success", false)
+                    .hasFieldOrPropertyWithValue("error", "Unknown product 99");
+        }
+
+        @Test
+        @DisplayName("When a batch moves a product to another category, then use the category the batch already read")
+        void updateProductsWithNewCategoryTest() {
+            var otherCategory = Category.builder()
+                    .categoryId(2)
+                    .name("Other category")
+                    .build();
+
+            productDTO.setCategories(List.of(CategoryDTO.builder().categoryId(2).build()));
+
+            when(optimisticRetry.execute(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+            when(productRepository.findWithCategoriesByProductIdIn(anyCollection(), any(Sort.class))).thenReturn(List.of(product));
+            when(categoryRepository.findAllById(anySet())).thenReturn(List.of(otherCategory));
+
+            var results = productService.updateProducts(List.of(productDTO));
+
+            verify(categoryRepository, times(1)).findAllById(Set.of(2));
+            verifyNoMoreInteractions(categoryRepository);
+
+            assertThat(product.getCategories()).containsExactly(otherCategory);
+            assertThat(results.get(0)).hasFieldOrPropertyWithValue("success", true);
+        }
+
+        @Test
+        @DisplayName("When a batch item leaves out its categories, then fail that item instead of removing them")
+        void updateProductsWithNullCategoriesTest() {
+            var categories = Set.copyOf(product.getCategories());
+            productDTO.setCategories(null);
+
+            when(optimisticRetry.execute(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+            when(productRepository.findWithCategoriesByProductIdIn(anyCollection(), any(Sort.class))).thenReturn(List.of(product));
+
+            var results = productService.updateProducts(List.of(productDTO));
+
+            verifyNoInteractions(productTitleIndex, categoryMembershipIndex);
+
+            assertThat(product.getCategories()).containsExactlyInAnyOrderElementsOf(categories).isNotEmpty();
+            assertThat(results)
+                    .singleElement()
+                    .hasFieldOrPropertyWithValue("success", false)
+                    .hasFieldOrPropertyWithValue("error", "Categories are required");
+        }
+
+        @Test
+        @DisplayName("When the batch is too large, then return null")
+        void updateProductsWithOversizedBatchTest() {
+            var productDTOs = Collections.nCopies(ProductService.MAX_BATCH_SIZE + 1, productDTO);
+
+            var results = productService.updateProducts(productDTOs);
+
+            verifyNoInteractions(optimisticRetry);
+            verifyNoInteractions(productRepository);
+            verifyNoInteractions(categoryRepository);
+
+            assertThat(results).isNull();
+        }
+    }
+
     @Nested
     @DisplayName("updateProduct Test Suite")
     class UpdateProductTests {
 
         @Test
-        @DisplayName("When a product is updated, then map it to the DTO")
+        @DisplayName("When a product moves to another category, then only read the new category and map it to the DTO")
         void updateProductTest() {
-            when(productRepository.findById(anyInt())).thenReturn(Optional.of(product));
-            when(categoryRepository.findAllById(anySet())).thenReturn(List.of(category));
+            var otherCategory = Category.builder()
+                    .categoryId(2)
+                    .name("Other category")
+                    .build();
+
+            productDTO.setCategories(List.of(CategoryDTO.builder().categoryId(2).build()));
+
+            when(productRepository.findWithCategoriesByProductId(anyInt())).thenReturn(Optional.of(product));
+            when(categoryRepository.findAllById(anySet())).thenReturn(List.of(otherCategory));
+            when(dtoMapper.mapToVersionedProductDTO(any(Product.class))).thenCallRealMethod();
             when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
-            when(dtoMapper.mapToCategoryDTO(any(Category.class))).thenCallRealMethod();
 
-            var updatedProduct = productService.updateProduct(1, productDTO);
+            var updatedProduct = productService.updateProduct(1, productDTO, null);
 
-            verify(productRepository, times(1)).findById(anyInt());
+            verify(productRepository, times(1)).findWithCategoriesByProductId(anyInt());
             verify(productRepository, times(1)).saveAndFlush(any(Product.class));
             verifyNoMoreInteractions(productRepository);
 
-            verify(categoryRepository, times(1)).findAllById(anySet());
+            verify(productCache, times(1)).put(updatedProduct);
+
+            verify(categoryRepository, times(1)).findAllById(Set.of(2));
             verifyNoMoreInteractions(categoryRepository);
 
+            verify(dtoMapper, times(1)).mapToVersionedProductDTO(any(Product.class));
             verify(dtoMapper, times(1)).mapToProductDTO(any(Product.class));
-            verify(dtoMapper, times(1)).mapToCategoryDTO(any(Category.class));
             verifyNoMoreInteractions(dtoMapper);
 
-            assertThat(updatedProduct)
+            assertThat(product.getCategories()).containsExactly(otherCategory);
+            assertThat(updatedProduct.getProduct())
                     .hasFieldOrPropertyWithValue("title", productDTO.getTitle())
                     .hasFieldOrPropertyWithValue("productId", productDTO.getProductId())
                     .hasFieldOrPropertyWithValue("description", productDTO.getDescription())
@@ -227,8 +862,57 @@ public class ProductServiceTest {
                     .extracting(ProductDTO::getCategories)
                     .asList()
                     .first()
-                    .hasFieldOrPropertyWithValue("categoryId", category.getCategoryId())
-                    .hasFieldOrPropertyWithValue("name", category.getName());
+                    .hasFieldOrPropertyWithValue("categoryId", otherCategory.getCategoryId())
+                    .hasFieldOrPropertyWithValue("name", otherCategory.getName());
+        }
+
+        @Test
+        @DisplayName("When the categories are unchanged, then keep the loaded ones without reading any")
+        void updateProductWithSameCategoriesTest() {
+            var categories = product.getCategories();
+
+            when(productRepository.findWithCategoriesByProductId(anyInt())).thenReturn(Optional.of(product));
+            when(dtoMapper.mapToVersionedProductDTO(any(Product.class))).thenCallRealMethod();
+            when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
+
+            productService.updateProduct(1, productDTO, null);
+
+            verifyNoInteractions(categoryRepository);
+
+            assertThat(product.getCategories()).isSameAs(categories).containsExactly(category);
+        }
+
+        @Test
+        @DisplayName("When the If-Match tag is current, then update the product")
+        void updateProductWithCurrentIfMatchTest() {
+            product.setVersion(3L);
+
+            when(productRepository.findWithCategoriesByProductId(anyInt())).thenReturn(Optional.of(product));
+            when(dtoMapper.mapToVersionedProductDTO(any(Product.class))).thenCallRealMethod();
+            when(dtoMapper.mapToProductDTO(any(Product.class))).thenCallRealMethod();
+
+            var updatedProduct = productService.updateProduct(1, productDTO, "\"p1-2-0\", \"p1-3-0\"");
+
+            verify(productRepository, times(1)).saveAndFlush(any(Product.class));
+            assertThat(updatedProduct.getProduct()).hasFieldOrPropertyWithValue("productId", productDTO.getProductId());
+            assertThat(updatedProduct.getEtag()).isEqualTo("\"p1-3-0\"");
+        }
+
+        @Test
+        @DisplayName("When the If-Match tag is stale, then fail with an optimistic locking exception without saving")
+        void updateProductWithStaleIfMatchTest() {
+            product.setVersion(4L);
+
+            when(productRepository.findWithCategoriesByProductId(anyInt())).thenReturn(Optional.of(product));
+
+            assertThatThrownBy(() -> productService.updateProduct(1, productDTO, "\"p1-3-0\""))
+                    .isInstanceOf(OptimisticLockingFailureException.class);
+
+            verify(productRepository, times(1)).findWithCategoriesByProductId(anyInt());
+            verifyNoMoreInteractions(productRepository);
+
+            verifyNoInteractions(categoryRepository);
+            verifyNoInteractions(dtoMapper);
         }
 
         @Test
@@ -236,7 +920,7 @@ public class ProductServiceTest {
         void updateProductWithNullTitleTest() {
             productDTO.setTitle(null);
 
-            var updatedProduct = productService.updateProduct(1, productDTO);
+            var updatedProduct = productService.updateProduct(1, productDTO, null);
 
             verifyNoInteractions(productRepository);
             verifyNoInteractions(categoryRepository);
@@ -250,7 +934,7 @@ public class ProductServiceTest {
         void updateProductWithEmptyTitleTest() {
             productDTO.setTitle("");
 
-            var updatedProduct = productService.updateProduct(1, productDTO);
+            var updatedProduct = productService.updateProduct(1, productDTO, null);
 
             verifyNoInteractions(productRepository);
             verifyNoInteractions(categoryRepository);
@@ -259,14 +943,27 @@ public class ProductServiceTest {
             assertThat(updatedProduct).isNull();
         }
 
+        @Test
+        @DisplayName("When updating a product without categories, then return null")
+        void updateProductWithoutCategoriesTest() {
+            productDTO.setCategories(null);
+
+            var updatedProduct = productService.updateProduct(1, productDTO, null);
+
+            verifyNoInteractions(productRepository);
+            verifyNoInteractions(categoryRepository);
+
+            assertThat(updatedProduct).isNull();
+        }
+
         @Test
         @DisplayName("When no product is found to update, then return null")
         void updateProductNotFoundTest() {
-            when(productRepository.findById(anyInt())).thenReturn(Optional.empty());
+            when(productRepository.findWithCategoriesByProductId(anyInt())).thenReturn(Optional.empty());
 
-            var updatedProduct = productService.updateProduct(1, productDTO);
+            var updatedProduct = productService.updateProduct(1, productDTO, null);
 
-            verify(productRepository, times(1)).findById(anyInt());
+            verify(productRepository, times(1)).findWithCategoriesByProductId(anyInt());
             verifyNoMoreInteractions(productRepository);
 
             verifyNoInteractions(categoryRepository);
@@ -275,4 +972,158 @@ public class ProductServiceTest {
             assertThat(updatedProduct).isNull();
         }
     }
+
+    @Nested
+    @DisplayName("patchProduct Test Suite")
+    class PatchProductTests {
+
+        private ProductVersion productVersion;
+
+        @BeforeEach
+        void setup() {
+            productVersion = new ProductVersion() {
+                @Override
+                public Long getVersion() {
+                    return 1L;
+                }
+
+                @Override
+                public OffsetDateTime getUpdatedAt() {
+                    return null;
+                }
+
+                @Override
+                public OffsetDateTime getCategoriesUpdatedAt() {
+                    return null;
+                }
+            };
+        }
+
+        @Test
+        @DisplayName("When only the title is patched, then update the product row without loading its categories")
+        void patchProductTitleTest() {
+            var patch = JsonNodeFactory.instance.objectNode().put("title", "Patched title");
+
+            when(productRepository.findById(anyInt())).thenReturn(Optional.of(product));
+            when(productRepository.findVersionByProductId(anyInt())).thenReturn(Optional.of(productVersion));
+
+            var version = productService.patchProduct(1, patch, null);
+
+            verify(productRepository, times(1)).findById(1);
+            verify(productRepository, times(1)).saveAndFlush(product);
+            verify(productRepository, times(1)).findVersionByProductId(1);
+            verifyNoMoreInteractions(productRepository);
+
+            verify(productCache, times(1)).evict(1);
+            verify(productTitleIndex, times(1)).put(1, "Patched title");
+
+            verifyNoInteractions(categoryRepository, categoryMembershipIndex, dtoMapper);
+
+            assertThat(product.getTitle()).isEqualTo("Patched title");
+            assertThat(product.getDescription()).isEqualTo("A good product");
+            assertThat(version.getEtag()).isEqualTo("\"p1-1-0\"");
+        }
+
+        @Test
+        @DisplayName("When a field is patched to null, then clear it")
+        void patchProductClearsDescriptionTest() {
+            var patch = JsonNodeFactory.instance.objectNode().putNull("description");
+
+            when(productRepository.findById(anyInt())).thenReturn(Optional.of(product));
+            when(productRepository.findVersionByProductId(anyInt())).thenReturn(Optional.of(productVersion));
+
+            productService.patchProduct(1, patch, null);
+
+            verifyNoInteractions(productTitleIndex);
+
+            assertThat(product.getDescription()).isNull();
+            assertThat(product.getTitle()).isEqualTo("Product title");
+        }
+
+        @Test
+        @DisplayName("When the categories are patched, then apply the difference and reindex the membership")
+        void patchProductCategoriesTest() {
+            var otherCategory = Category.builder()
+                    .categoryId(2)
+                    .name("Other category")
+                    .build();
+
+            var patch = JsonNodeFactory.instance.objectNode();
+            patch.putArray("categories").addObject().put("categoryId", 2);
+
+            when(productRepository.findById(anyInt())).thenReturn(Optional.of(product));
+            when(productRepository.findVersionByProductId(anyInt())).thenReturn(Optional.of(productVersion));
+            when(categoryRepository.findAllById(anySet())).thenReturn(List.of(otherCategory));
+
+            productService.patchProduct(1, patch, null);
+
+            verify(categoryRepository, times(1)).findAllById(Set.of(2));
+            verifyNoMoreInteractions(categoryRepository);
+
+            verify(categoryMembershipIndex, times(1)).setCategories(1, List.of(2));
+
+            assertThat(product.getCategories()).containsExactly(otherCategory);
+        }
+
+        @Test
+        @DisplayName("When the title is patched to empty, then return null without loading the product")
+        void patchProductWithEmptyTitleTest() {
+            var patch = JsonNodeFactory.instance.objectNode().put("title", "");
+
+            var version = productService.patchProduct(1, patch, null);
+
+            verifyNoInteractions(productRepository, categoryRepository, productTitleIndex);
+
+            assertThat(version).isNull();
+        }
+
+        @Test
+        @DisplayName("When the title or description is patched past its column length, then return null without loading the product")
+        void patchProductWithLongTextTest() {
+            var longTitle = JsonNodeFactory.instance.objectNode()
+                    .put("title", "t".repeat(ProductService.MAX_TITLE_LENGTH + 1));
+            var longDescription = JsonNodeFactory.instance.objectNode()
+                    .put("description", "d".repeat(ProductService.MAX_DESCRIPTION_LENGTH + 1));
+
+            assertThat(productService.patchProduct(1, longTitle, null)).isNull();
+            assertThat(productService.patchProduct(1, longDescription, null)).isNull();
+
+            verifyNoInteractions(productRepository, categoryRepository, productTitleIndex);
+        }
+
+        @Test
+        @DisplayName("When the release date is malformed, then return null without loading the product")
+        void patchProductWithInvalidReleaseDateTest() {
+            var patch = JsonNodeFactory.instance.objectNode().put("releaseDate", "yesterday");
+
+            var version = productService.patchProduct(1, patch, null);
+
+            verifyNoInteractions(productRepository);
+
+            assertThat(version).isNull();
+        }
+
+        @Test
+        @DisplayName("When the If-Match tag is stale, then fail with an optimistic locking exception without saving")
+        void patchProductWithStaleIfMatchTest() {
+            var patch = JsonNodeFactory.instance.objectNode().put("title", "Patched title");
+
+            when(productRepository.findById(anyInt())).thenReturn(Optional.of(product));
+            when(productRepository.findVersionByProductId(anyInt())).thenReturn(Optional.of(productVersion));
+
+            assertThatThrownBy(() -> productService.patchProduct(1, patch, "\"p1-0-0\""))
+                    .isInstanceOf(OptimisticLockingFailureException.class);
+
+            verify(productRepository, never()).saveAndFlush(any(Product.class));
+
+            assertThat(product.getTitle()).isEqualTo("Product title");
+        }
+    }
+
+    private static VersionedProductDTO versioned(ProductDTO productDTO, long version) {
+        return VersionedProductDTO.builder()
+                .product(productDTO)
+                .etag("\"p" + productDTO.getProductId() + "-" + version + "-0\"")
+                .build();
+    }
 }
@@ -0,0 +1,90 @@
+package logan.tillman.ecom.transaction;
+
+import logan.tillman.ecom.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OptimisticRetryTest {
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private OptimisticRetry optimisticRetry;
+
+    @BeforeEach
+    void setup() {
+        when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+        optimisticRetry = new OptimisticRetry(transactionManager, 3, Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("When the work conflicts once, then run it again in a new transaction")
+    void executeRetriesConflictTest() {
+        var attempts = new AtomicInteger();
+
+        var result = optimisticRetry.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, 1);
+            }
+
+            return "done";
+        });
+
+        verify(transactionManager, times(2)).getTransaction(any(TransactionDefinition.class));
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+        verifyNoMoreInteractions(transactionManager);
+
+        assertThat(result).isEqualTo("done");
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("When the work keeps conflicting, then give up after the last attempt")
+    void executeGivesUpTest() {
+        var attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> optimisticRetry.execute(() -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException(Product.class, 1);
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        verify(transactionManager, times(3)).rollback(any());
+        verify(transactionManager, never()).commit(any());
+
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("When the work fails for another reason, then do not retry it")
+    void executeDoesNotRetryOtherFailuresTest() {
+        var attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> optimisticRetry.execute(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("broken");
+        })).isInstanceOf(IllegalStateException.class);
+
+        verify(transactionManager, times(1)).rollback(any());
+
+        assertThat(attempts).hasValue(1);
+    }
+}
@@ -1,4 +1,8 @@
 create table category (
     category_id serial primary key,
     name varchar(100) not null
-);
\ No newline at end of file
+);
+
+-- Optimistic lock version and last change time, the validators for conditional GETs
+alter table category add column version bigint not null default 0;
+alter table category add column updated_at timestamptz not null default now();
@@ -3,4 +3,19 @@ create table product (
     title varchar(100) not null,
     description varchar(255) null,
     release_date timestamptz null
-);
\ No newline at end of file
+);
+
+-- Hibernate allocates product ids in blocks of 50 from this sequence so inserts can be batched
+alter sequence product_product_id_seq increment by 50;
+
+-- Serves release date range queries newest first as an index range scan
+create index product_release_date_idx on product (release_date, product_id);
+
+-- Full-text search document kept in sync by Postgres and searched through the GIN index
+alter table product add column search_vector tsvector
+    generated always as (to_tsvector('english', coalesce(title, '') || ' ' || coalesce(description, ''))) stored;
+create index product_search_vector_idx on product using gin (search_vector);
+
+-- Optimistic lock version and last change time, the validators for conditional GETs
+alter table product add column version bigint not null default 0;
+alter table product add column updated_at timestamptz not null default now();